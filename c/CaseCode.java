@@ -374,9 +374,9 @@ final class CaseExpr extends Code {
         ctx.visitLabel(end);
     }
 
-    void markTail() {
+    void markTail(Function f) {
         for (int i = choices.size(); --i >= 0;) {
-            ((Choice) choices.get(i)).expr.markTail();
+            ((Choice) choices.get(i)).expr.markTail(f);
         }
     }
 }
@@ -71,8 +71,10 @@ class ClassDir extends ClassPathItem {
 class ClassJar extends ClassPathItem {
     JarFile jar;
     Map entries = Collections.EMPTY_MAP;
+    long lastModified;
 
     ClassJar(String path) {
+        lastModified = new File(path).lastModified();
         try {
             jar = new JarFile(path);
             Enumeration e = jar.entries();
@@ -109,6 +111,9 @@ class ClassFinder {
     final Map parsed = new HashMap();
     final Map existsCache = new HashMap();
     final String pathStr;
+    // jar indexes kept between compilations by CompileServer
+    static Map sharedJars;
+    CompileProfile profile;
 
     ClassFinder(String cp) {
         this(cp.split(File.pathSeparator), null);
@@ -119,7 +124,7 @@ class ClassFinder {
         StringBuilder buf = new StringBuilder();
         for (int i = 0; i < cp.length; ++i) {
             classPath[i] = cp[i].endsWith(".jar")
-                ? (ClassPathItem) new ClassJar(cp[i]) : new ClassDir(cp[i]);
+                ? (ClassPathItem) openJar(cp[i]) : new ClassDir(cp[i]);
             if (i != 0)
                 buf.append(File.pathSeparator);
             buf.append(cp[i]);
@@ -128,6 +133,23 @@ class ClassFinder {
         destDir = depDestDir == null ? null : new ClassDir(depDestDir);
     }
 
+    private static ClassJar openJar(String path) {
+        Map shared = sharedJars;
+        if (shared == null)
+            return new ClassJar(path);
+        ClassJar jar = (ClassJar) shared.get(path);
+        if (jar == null || jar.lastModified != new File(path).lastModified()) {
+            if (jar != null && jar.jar != null)
+                try {
+                    jar.jar.close();
+                } catch (IOException ex) {
+                }
+            jar = new ClassJar(path);
+            shared.put(path, jar);
+        }
+        return jar;
+    }
+
     public InputStream findClass(String name, long[] time) {
         Object x = defined.get(name);
         if (x != null && time != null) {
@@ -184,6 +206,17 @@ class ClassFinder {
     }
 
     JavaTypeReader readClass(String className) {
+        if (profile == null)
+            return readClassFile(className);
+        profile.begin(CompileProfile.CLASSPATH, null);
+        try {
+            return readClassFile(className);
+        } finally {
+            profile.end();
+        }
+    }
+
+    private JavaTypeReader readClassFile(String className) {
         JavaTypeReader t = new JavaTypeReader();
         t.className = className;
         Object classNode = parsed.get(className);
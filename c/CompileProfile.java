@@ -0,0 +1,237 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti compiler phase profile.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang.compiler;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects per module wall time and allocated bytes of the compiler
+ * phases, and the count and size of generated classes.
+ *
+ * Phases nest (analyze loads dependencies, which parses them), so
+ * the times of a phase exclude the nested phases.
+ */
+final class CompileProfile {
+    static final int READ      = 0;
+    static final int PARSE     = 1;
+    static final int ANALYZE   = 2;
+    static final int CODEGEN   = 3;
+    static final int WRITE     = 4;
+    static final int CLASSPATH = 5;
+    static final int TYPES     = 6;
+    private static final String[] PHASES =
+        { "read", "parse", "analyze", "codegen", "write",
+          "classpath", "types" };
+
+    private static final class Stats {
+        final long[] time = new long[PHASES.length];
+        final long[] alloc = new long[PHASES.length];
+        int classes;
+        long classBytes;
+    }
+
+    private final Map modules = new LinkedHashMap();
+    private final Stats total = new Stats();
+    private final long start = System.nanoTime();
+    private final com.sun.management.ThreadMXBean mx;
+    // phase stack
+    private int depth;
+    private int[] phase = new int[16];
+    private String[] module = new String[16];
+    private long[] startTime = new long[16];
+    private long[] startAlloc = new long[16];
+    private long[] childTime = new long[16];
+    private long[] childAlloc = new long[16];
+
+    CompileProfile() {
+        Object bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean mx = null;
+        try {
+            if (bean instanceof com.sun.management.ThreadMXBean &&
+                    ((com.sun.management.ThreadMXBean) bean)
+                        .isThreadAllocatedMemorySupported())
+                mx = (com.sun.management.ThreadMXBean) bean;
+        } catch (LinkageError ex) { // not HotSpot JVM
+        }
+        this.mx = mx;
+    }
+
+    private long allocated() {
+        return mx == null ? 0 :
+            mx.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private Stats stats(String name) {
+        if (name == null)
+            name = "";
+        Stats st = (Stats) modules.get(name);
+        if (st == null)
+            modules.put(name, st = new Stats());
+        return st;
+    }
+
+    /**
+     * Starts a phase. The module may be null for nested phases,
+     * which are then accounted to the module of the outer phase.
+     */
+    void begin(int ph, String mod) {
+        if (depth == phase.length) {
+            int n = depth * 2;
+            int[] p = new int[n];
+            String[] m = new String[n];
+            long[][] l = { startTime, startAlloc, childTime, childAlloc };
+            System.arraycopy(phase, 0, p, 0, depth);
+            System.arraycopy(module, 0, m, 0, depth);
+            for (int i = 0; i < l.length; ++i) {
+                long[] a = new long[n];
+                System.arraycopy(l[i], 0, a, 0, depth);
+                l[i] = a;
+            }
+            phase = p;
+            module = m;
+            startTime = l[0];
+            startAlloc = l[1];
+            childTime = l[2];
+            childAlloc = l[3];
+        }
+        if (mod == null && depth > 0)
+            mod = module[depth - 1];
+        phase[depth] = ph;
+        module[depth] = mod;
+        childTime[depth] = 0;
+        childAlloc[depth] = 0;
+        startAlloc[depth] = allocated();
+        startTime[depth++] = System.nanoTime();
+    }
+
+    /** Ends the last started phase. */
+    void end() {
+        long t = System.nanoTime() - startTime[--depth];
+        long a = allocated() - startAlloc[depth];
+        if (depth > 0) {
+            childTime[depth - 1] += t;
+            childAlloc[depth - 1] += a;
+        }
+        t -= childTime[depth];
+        a -= childAlloc[depth];
+        Stats st = stats(module[depth]);
+        int ph = phase[depth];
+        st.time[ph] += t;
+        st.alloc[ph] += a;
+        total.time[ph] += t;
+        total.alloc[ph] += a;
+    }
+
+    /** Records a generated class of the current module. */
+    void classWritten(int bytes) {
+        Stats st = stats(depth > 0 ? module[depth - 1] : null);
+        st.classes++;
+        st.classBytes += bytes;
+        total.classes++;
+        total.classBytes += bytes;
+    }
+
+    private static void ms(StringBuilder to, long ns) {
+        to.append(ns / 1000000).append('.');
+        String frac = Long.toString(ns / 1000 % 1000 + 1000);
+        to.append(frac, 1, 4);
+    }
+
+    private static void string(StringBuilder to, String s) {
+        to.append('"');
+        for (int i = 0, n = s.length(); i < n; ++i) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                to.append('\\').append(c);
+            else if (c < ' ')
+                to.append(String.format("\\u%04x", new Object[] {
+                    Integer.valueOf(c) }));
+            else
+                to.append(c);
+        }
+        to.append('"');
+    }
+
+    private static void stats(StringBuilder to, Stats st, String indent) {
+        to.append("{\n").append(indent).append("  \"phases\": {");
+        for (int i = 0; i < PHASES.length; ++i) {
+            to.append(i == 0 ? "\n" : ",\n")
+              .append(indent).append("    \"").append(PHASES[i])
+              .append("\": {\"ms\": ");
+            ms(to, st.time[i]);
+            to.append(", \"allocatedBytes\": ").append(st.alloc[i])
+              .append('}');
+        }
+        to.append('\n').append(indent).append("  },\n")
+          .append(indent).append("  \"classes\": ").append(st.classes)
+          .append(",\n").append(indent).append("  \"classBytes\": ")
+          .append(st.classBytes).append('\n').append(indent).append('}');
+    }
+
+    /** Returns the profile as JSON document. */
+    String toJson() {
+        StringBuilder r = new StringBuilder("{\n  \"wallMs\": ");
+        ms(r, System.nanoTime() - start);
+        r.append(",\n  \"allocationTracking\": ").append(mx != null)
+         .append(",\n  \"total\": ");
+        stats(r, total, "  ");
+        r.append(",\n  \"modules\": [");
+        for (Iterator i = modules.entrySet().iterator(); i.hasNext();) {
+            Map.Entry e = (Map.Entry) i.next();
+            r.append("\n    {\"module\": ");
+            string(r, (String) e.getKey());
+            r.append(", \"profile\": ");
+            stats(r, (Stats) e.getValue(), "    ");
+            r.append(i.hasNext() ? "}," : "}");
+        }
+        return r.append("\n  ]\n}\n").toString();
+    }
+
+    /** Writes JSON report into the file, or stderr when file is "-". */
+    void write(String file) throws IOException {
+        String json = toJson();
+        if (file.equals("-")) {
+            System.err.print(json);
+            return;
+        }
+        Writer w = new OutputStreamWriter(new FileOutputStream(file),
+                                          "UTF-8");
+        try {
+            w.write(json);
+        } finally {
+            w.close();
+        }
+    }
+}
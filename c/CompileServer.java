@@ -0,0 +1,291 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti compiler server.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang.compiler;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import yeti.lang.Core;
+import yeti.lang.ExitError;
+import yeti.lang.Fun;
+import yeti.lang.MList;
+
+/**
+ * Long-running compiler process, that keeps the JIT-compiled compiler,
+ * the library module types and jar indexes between the builds.
+ *
+ * The server listens on loopback interface and writes its port and
+ * an access token into the SERVER_FILE in the current directory.
+ * The client sends the token and arguments as NUL-terminated strings
+ * (the argument count first), and receives the output in frames
+ * of channel byte (1 - stdout, 2 - stderr) and 4-byte length.
+ * The exit code is sent last as channel 0 frame with 4-byte code.
+ * Reading System.in sends a channel 3 frame with the maximum byte count
+ * (and no data), and the client replies with 4-byte length and that
+ * many bytes of its standard input (zero length means end of input).
+ *
+ * System.out and System.err write into the connection of the request,
+ * that started the writing thread. Threads left running after the
+ * request has ended can't write into another client's connection.
+ * Requests are served one at a time, as System.in is replaced and
+ * the compiler caches are shared.
+ */
+final class CompileServer {
+    static final String SERVER_FILE = ".yeti-server";
+    static final String STOP = "-server-stop";
+
+    private final ServerSocket server;
+    private final String token;
+    private final Fun run;
+
+    private CompileServer(Fun run) throws IOException {
+        this.run = run;
+        server = new ServerSocket(0, 8, InetAddress.getLoopbackAddress());
+        byte[] rnd = new byte[16];
+        new SecureRandom().nextBytes(rnd);
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < rnd.length; ++i)
+            buf.append(Integer.toHexString((rnd[i] & 0xff) | 0x100), 1, 3);
+        token = buf.toString();
+    }
+
+    // client connection of the request, inherited by the started threads
+    private static final InheritableThreadLocal REQUEST =
+        new InheritableThreadLocal();
+
+    private static final class Request {
+        final InputStream in;
+        final DataOutputStream out;
+        volatile boolean closed;
+
+        Request(InputStream in, DataOutputStream out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        // frames written output into the client connection
+        void write(int channel, byte[] b, int off, int len)
+                throws IOException {
+            synchronized (out) {
+                if (closed)
+                    throw new IOException("Request has ended");
+                out.writeByte(channel);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        // asks for at most max bytes of the client stdin
+        void request(int max) throws IOException {
+            synchronized (out) {
+                if (closed)
+                    throw new IOException("Request has ended");
+                out.writeByte(3);
+                out.writeInt(max);
+                out.flush();
+            }
+        }
+
+        void end(int exitCode) throws IOException {
+            synchronized (out) {
+                closed = true;
+                out.writeByte(0);
+                out.writeInt(exitCode);
+                out.flush();
+            }
+        }
+    }
+
+    // System.out and System.err, writing into the current request
+    private static final class Channel extends OutputStream {
+        private final OutputStream server;
+        private final int channel;
+
+        Channel(OutputStream server, int channel) {
+            this.server = server;
+            this.channel = channel;
+        }
+
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            Request req = (Request) REQUEST.get();
+            if (req == null)
+                server.write(b, off, len);
+            else if (len > 0)
+                req.write(channel, b, off, len);
+        }
+
+        public void flush() throws IOException {
+            Request req = (Request) REQUEST.get();
+            if (req == null) {
+                server.flush();
+            } else {
+                synchronized (req.out) {
+                    if (!req.closed)
+                        req.out.flush();
+                }
+            }
+        }
+    }
+
+    // System.in of a request, reads the client stdin on demand
+    private static final class ClientInput extends InputStream {
+        private final Request req;
+        private int left;
+        private boolean eof;
+
+        ClientInput(Request req) {
+            this.req = req;
+        }
+
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) > 0 ? b[0] & 0xff : -1;
+        }
+
+        public synchronized int read(byte[] b, int off, int len)
+                throws IOException {
+            if (len <= 0)
+                return 0;
+            if (left == 0) {
+                if (eof || req.closed)
+                    return -1;
+                System.out.flush();
+                req.request(len);
+                left = new DataInputStream(req.in).readInt();
+                if (left <= 0) {
+                    eof = true;
+                    return -1;
+                }
+            }
+            int n = req.in.read(b, off, Math.min(len, left));
+            if (n < 0)
+                throw new EOFException();
+            left -= n;
+            return n;
+        }
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        for (int c; (c = in.read()) != 0; ) {
+            if (c < 0)
+                throw new EOFException();
+            buf.write(c);
+        }
+        return buf.toString("UTF-8");
+    }
+
+    // returns false, when the server should stop
+    private boolean serve(Socket socket) throws IOException {
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+        if (!token.equals(readString(in)))
+            return true;
+        String[] args = new String[Integer.parseInt(readString(in))];
+        for (int i = 0; i < args.length; ++i)
+            args[i] = readString(in);
+        int exitCode = 0;
+        boolean stop = args.length == 1 && STOP.equals(args[0]);
+        Request req = new Request(in, out);
+        if (!stop) {
+            InputStream oldIn = System.in;
+            System.setIn(new ClientInput(req));
+            REQUEST.set(req);
+            Core.NO_EXIT.set(Boolean.TRUE);
+            try {
+                JavaType.flushCache();
+                run.apply(new MList(args));
+            } catch (ExitError ex) {
+                exitCode = ex.getExitCode();
+            } catch (Throwable ex) {
+                ex.printStackTrace();
+                exitCode = 2;
+            } finally {
+                Core.NO_EXIT.remove();
+                System.out.flush();
+                System.err.flush();
+                REQUEST.remove();
+                System.setIn(oldIn);
+            }
+        }
+        req.end(exitCode);
+        return !stop;
+    }
+
+    private void loop(File portFile) throws IOException {
+        for (boolean more = true; more;) {
+            Socket socket = server.accept();
+            try {
+                more = serve(socket);
+            } catch (IOException ex) {
+                // client went away, nothing to do
+            } finally {
+                socket.close();
+            }
+        }
+        server.close();
+        portFile.delete();
+    }
+
+    /**
+     * Runs the compile server in the current directory, applying run to
+     * the argument array of each request. Returns when stopped.
+     */
+    static void start(Fun run) throws IOException {
+        CompileServer cs = new CompileServer(run);
+        File portFile = new File(SERVER_FILE).getAbsoluteFile();
+        portFile.delete();
+        Writer w = new OutputStreamWriter(new FileOutputStream(portFile),
+                                          "UTF-8");
+        // the token allows only the owner to send requests
+        portFile.setReadable(false, false);
+        portFile.setReadable(true, true);
+        w.write(cs.server.getLocalPort() + " " + cs.token + "\n");
+        w.close();
+        portFile.deleteOnExit();
+        ClassFinder.sharedJars = new HashMap();
+        System.setOut(new PrintStream(new Channel(System.out, 1),
+                                      true, "UTF-8"));
+        System.setErr(new PrintStream(new Channel(System.err, 2),
+                                      true, "UTF-8"));
+        System.err.println("Yeti compile server on port " +
+            cs.server.getLocalPort() + ", stop with yeti " + STOP);
+        cs.loop(portFile);
+    }
+}
@@ -71,6 +71,17 @@ class JavaExpr extends Code {
                                    "bytes", "(Lyeti/lang/AList;)[B");
                     return;
                 }
+                if (t.javaType.description == "D" ||
+                    t.javaType.description == "J") {
+                    // passes the backing array of primitive array views
+                    boolean d = t.javaType.description == "D";
+                    ctx.typeInsn(CHECKCAST, "yeti/lang/AList");
+                    ctx.methodInsn(INVOKESTATIC, "yeti/lang/PMList",
+                                   d ? "doubles" : "longs",
+                                   d ? "(Lyeti/lang/AList;)[D"
+                                     : "(Lyeti/lang/AList;)[J");
+                    return;
+                }
                 if (t.javaType.description.charAt(0) == 'L') {
                     ctx.typeInsn(CHECKCAST, "yeti/lang/AList");
                     ctx.methodInsn(INVOKESTATIC, "yeti/lang/MList", "ofList",
@@ -350,8 +361,12 @@ class JavaExpr extends Code {
             if (javaItem != null && javaItem.description.length() == 1) {
                 String arrayType = "[".concat(javaItem.description);
                 ctx.typeInsn(CHECKCAST, arrayType);
-                ctx.methodInsn(INVOKESTATIC, "yeti/lang/PArray",
-                               "wrap", "(" + arrayType + ")Lyeti/lang/AList;");
+                if (argType.param[1].deref().type == YetiType.NUM)
+                    ctx.methodInsn(INVOKESTATIC, "yeti/lang/PMList", "wrap",
+                                   "(" + arrayType + ")Lyeti/lang/MList;");
+                else
+                    ctx.methodInsn(INVOKESTATIC, "yeti/lang/PArray", "wrap",
+                                   "(" + arrayType + ")Lyeti/lang/AList;");
                 return false;
             }
             Label isNull = new Label(), end = new Label();
@@ -757,7 +757,10 @@ class JavaType implements Cloneable {
                 if (fp.javaType != null &&
                     fp.javaType.description.length() == 1) {
                     char fromPrimitive = fp.javaType.description.charAt(0);
-                    YetiType.unify(to.param[1], YetiType.NO_TYPE);
+                    // double[] and long[] can be viewed as array<number>
+                    if (to.param[1].deref().type != YetiType.NUM ||
+                            fromPrimitive != 'D' && fromPrimitive != 'J')
+                        YetiType.unify(to.param[1], YetiType.NO_TYPE);
                     YetiType.unify(to.param[0],
                         fromPrimitive == 'Z' ? YetiType.BOOL_TYPE :
                         fromPrimitive == 'C' ? YetiType.STR_TYPE :
@@ -970,6 +973,22 @@ class JavaType implements Cloneable {
         return field;
     }
 
+    /**
+     * Forgets the types of classes outside of the Java and Yeti runtime,
+     * as those may change between compilations in the same JVM.
+     */
+    static void flushCache() {
+        synchronized (CACHE) {
+            for (Iterator i = CACHE.keySet().iterator(); i.hasNext();) {
+                String sig = (String) i.next();
+                if (sig.startsWith("L") && !sig.startsWith("Ljava/") &&
+                        !sig.startsWith("Ljavax/") &&
+                        !sig.startsWith("Lyeti/lang/"))
+                    i.remove();
+            }
+        }
+    }
+
     static JavaType fromDescription(String sig) {
         synchronized (CACHE) {
             JavaType t = (JavaType) CACHE.get(sig);
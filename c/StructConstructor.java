@@ -36,6 +36,7 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 final class StructField implements Opcodes {
@@ -189,6 +190,12 @@ final class StructConstructor extends CapturingClosure implements Comparator {
         return new Bind(sf);
     }
 
+    // immutable function field of a structure under construction
+    static boolean isFunField(Binder binder) {
+        return binder instanceof Bind && ((Bind) binder).fun &&
+               !((Bind) binder).mutable;
+    }
+
     void add(StructField field) {
         if (field.name == null)
             throw new IllegalArgumentException();
@@ -215,6 +222,95 @@ final class StructConstructor extends CapturingClosure implements Comparator {
             if (field.property != 0)
                 mustGen = true;
         }
+        markTailCycles();
+    }
+
+    // called field index for a tail call of the field function, or -1
+    private int tailTarget(Object apply) {
+        Binder b = ((BindRef) ((Apply) apply).fun).binder;
+        StructField f = ((Bind) b).field;
+        return f.index < fieldCount && fields[f.index] == f ? f.index : -1;
+    }
+
+    /*
+     * Tail calls between the function fields are returned to the
+     * trampoline only inside a call cycle (strongly connected component
+     * of the field tail call graph), as the trampoline makes the calls
+     * slower. Other field calls stay direct. Multiple argument functions
+     * are not trampolined, their tail calls are in the inner function.
+     */
+    private void markTailCycles() {
+        List[] calls = new List[fieldCount];
+        boolean any = false;
+        for (int i = 0; i < fieldCount; ++i) {
+            StructField field = fields[i];
+            if (field.property == 0 && !field.mutable &&
+                    field.value instanceof Function) {
+                Function f = (Function) field.value;
+                any |= (calls[i] = f.fieldTailCalls) != null;
+                f.fieldTailCalls = null;
+            }
+        }
+        if (!any)
+            return;
+        TailCycles g = new TailCycles(calls);
+        for (int i = 0; i < fieldCount; ++i)
+            if (g.order[i] == 0 && calls[i] != null)
+                g.visit(i);
+        for (int i = 0; i < fieldCount; ++i) {
+            if (calls[i] == null)
+                continue;
+            Function f = (Function) fields[i].value;
+            for (int j = calls[i].size(); --j >= 0;) {
+                int target = tailTarget(calls[i].get(j));
+                if (target >= 0 && g.component[target] == g.component[i]) {
+                    ((Apply) calls[i].get(j)).tailOf = f;
+                    f.trampoline = true;
+                }
+            }
+        }
+    }
+
+    // Tarjan's strongly connected components of the field tail calls
+    private final class TailCycles {
+        final List[] calls;
+        final int[] component;
+        final int[] order;
+        final int[] low;
+        final int[] stack;
+        int sp;
+        int count;
+
+        TailCycles(List[] calls) {
+            this.calls = calls;
+            component = new int[calls.length];
+            order = new int[calls.length];
+            low = new int[calls.length];
+            stack = new int[calls.length];
+            Arrays.fill(component, -1);
+        }
+
+        void visit(int v) {
+            order[v] = low[v] = ++count;
+            stack[sp++] = v;
+            for (int i = calls[v] == null ? 0 : calls[v].size(); --i >= 0;) {
+                int w = tailTarget(calls[v].get(i));
+                if (w < 0)
+                    continue;
+                if (order[w] == 0) {
+                    visit(w);
+                    low[v] = Math.min(low[v], low[w]);
+                } else if (component[w] < 0) {
+                    low[v] = Math.min(low[v], order[w]);
+                }
+            }
+            if (low[v] == order[v]) {
+                int w;
+                do {
+                    component[w = stack[--sp]] = v;
+                } while (w != v);
+            }
+        }
     }
 
     void publish() {
@@ -288,7 +384,7 @@ final class StructConstructor extends CapturingClosure implements Comparator {
             ctx.visitInit(implClass, "()V");
         } else {
             ctx.constants.structInitArg(ctx, fields, fieldCount, false);
-            ctx.visitInit(implClass, "([Ljava/lang/String;[Z)V");
+            ctx.visitInit(implClass, "(Lyeti/lang/StructShape;)V");
         }
         if (arrayVar != -1)
             ctx.varInsn(ASTORE, arrayVar);
@@ -370,7 +466,7 @@ final class StructConstructor extends CapturingClosure implements Comparator {
                     withParent == null ? "()V" : "(Lyeti/lang/Struct;)V");
         m.load(0).constants
                  .structInitArg(m, fields, fieldCount, withParent != null);
-        m.visitInit("yeti/lang/AStruct", "([Ljava/lang/String;[Z)V");
+        m.visitInit("yeti/lang/AStruct", "(Lyeti/lang/StructShape;)V");
         if (withParent != null) {
             // generates code for joining super fields
             m.intConst(2);
@@ -31,6 +31,7 @@
 package yeti.lang.compiler;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.ArrayList;
@@ -215,12 +216,7 @@ final class YetiAnalyzer extends YetiType {
                 unify(left.type, STR_TYPE, op.left, scope, "#0");
                 Code right = analyze(op.right, scope, depth);
                 unify(right.type, STR_TYPE, op.right, scope, "#0");
-                if (left instanceof StringConstant &&
-                    right instanceof StringConstant) {
-                    return new StringConstant(((StringConstant) left).str +
-                                              ((StringConstant) right).str);
-                }
-                return new ConcatStrings(new Code[] { left, right });
+                return concatStr(new Code[] { left, right });
             }
             if (opop == "|>" && StaticRef.std(opfun, "$I$g"))
                 return apply(op, analyze(op.right, scope, depth),
@@ -538,7 +534,123 @@ final class YetiAnalyzer extends YetiType {
             }
             throw new CompileException(where, scope, fun.type, argCode.type, s, ex);
         }
-        return fun.apply(argCode, applyFun[1], where.line);
+        Code r = applyStd(fun, argCode, applyFun[1], where.line);
+        if (r == null && fun instanceof BindRef)
+            r = inline((BindRef) fun, argCode, applyFun[1], where, scope, depth);
+        return r != null ? r : fun.apply(argCode, applyFun[1], where.line);
+    }
+
+    // Maximum size of the inlined function body (in syntax tree nodes).
+    static final int INLINE_SIZE = 12;
+
+    /*
+     * Size of the expression for inlining, anything over the limit
+     * when it can't be inlined. Bindings, functions and classes would
+     * get duplicated by reanalysing, and are never inlined.
+     */
+    static int inlineSize(Node node, int limit) {
+        if (node == null)
+            return 0;
+        if (node instanceof Seq)
+            return limit + 1;
+        int n = 1;
+        Node[] expr = null;
+        if (node instanceof XNode) {
+            String kind = node.kind;
+            if (kind == "lambda" || kind == "class" || kind == "try" ||
+                    kind == "load")
+                return limit + 1;
+            expr = ((XNode) node).expr;
+        } else if (node instanceof BinOp) {
+            BinOp op = (BinOp) node;
+            if (op.op == "\\")
+                return limit + 1;
+            n += inlineSize(op.left, limit - n);
+            n += inlineSize(op.right, limit - n);
+            if (node instanceof ObjectRefOp)
+                expr = ((ObjectRefOp) node).arguments;
+        } else if (node instanceof Bind) {
+            n += inlineSize(((Bind) node).expr, limit - n);
+        }
+        for (int i = 0; expr != null && i < expr.length && n <= limit; ++i)
+            n += inlineSize(expr[i], limit - n);
+        return n;
+    }
+
+    /*
+     * Applies small non-recursive function by reanalysing its body
+     * at the call site. The result is direct lambda application, that
+     * Apply generates inline. Names between the call site and function
+     * binding must not shadow anything the function body refers to.
+     * Calls in the reanalysed body are not inlined, so the inlined code
+     * is at most INLINE_SIZE nodes (nesting would grow exponentially).
+     */
+    static Code inline(BindRef ref, Code arg, YType res, Node where,
+                       Scope scope, int depth) {
+        Code v;
+        Function f;
+        if (scope.ctx == null || scope.ctx.inlining != 0 ||
+            !(ref.binder instanceof BindExpr) ||
+            !((v = ((BindExpr) ref.binder).value()) instanceof Function) ||
+            !(f = (Function) v).inlineable())
+            return null;
+        Scope s = scope;
+        for (; s != null && s.binder != ref.binder; s = s.outer)
+            if (s.binder == null ||
+                    s.name != null && f.freeNames.contains(s.name))
+                return null;
+        if (s == null)
+            return null;
+        Function inlined = new Function(ref.type);
+        ++scope.ctx.inlining;
+        try {
+            lambda(inlined, f.inlineNode, scope, depth);
+        } finally {
+            --scope.ctx.inlining;
+        }
+        if (ref.origin != null)
+            ref.origin.arity = 1;
+        return new Apply(res, inlined, arg, where.line);
+    }
+
+    // Known small functions from std applied inline.
+    static Code applyStd(Code fun, Code arg, YType res, int line) {
+        if (StaticRef.std(fun, "id"))
+            return arg;
+        if (!(fun instanceof Apply))
+            return null;
+        Apply a = (Apply) fun;
+        if (StaticRef.std(a.fun, "const"))
+            return arg.flagop(Code.PURE) ? a.arg : null;
+        // forHash h do k v: ... done is loop without the closure
+        if (StaticRef.std(a.fun, "forHash") && arg instanceof Function &&
+                ((Function) arg).prepareInline(2))
+            return new ForHashLoop((Function) arg, a.arg, line);
+        if (!(a.fun instanceof Apply))
+            return null;
+        Apply b = (Apply) a.fun;
+        if (StaticRef.std(b.fun, "fold") && b.arg instanceof Function &&
+                ((Function) b.arg).prepareInline(2))
+            return new FoldLoop((Function) b.arg, a.arg, arg, res, line);
+        YType ft = b.arg.type.deref();
+        // flip f x y = f y x
+        if (StaticRef.std(b.fun, "flip") && ft.type == FUN &&
+                (a.arg.flagop(Code.PURE) || arg.flagop(Code.PURE)))
+            return b.arg.apply(arg, ft.param[1], line).apply(a.arg, res, line);
+        // on f g x y = f (g x) (g y)
+        Code f, g = b.arg;
+        if (b.fun instanceof Apply &&
+                StaticRef.std(((Apply) b.fun).fun, "on") && ft.type == FUN &&
+                (g instanceof SelectMemberFun ||
+                 g instanceof StaticRef && arg.flagop(Code.PURE))) {
+            f = ((Apply) b.fun).arg;
+            YType t = f.type.deref();
+            if (t.type == FUN)
+                return f.apply(g.apply(a.arg, ft.param[1], line), t.param[1],
+                               line).apply(g.apply(arg, ft.param[1], line),
+                                           res, line);
+        }
+        return null;
     }
 
     static Code rsection(XNode section, Scope scope, int depth) {
@@ -559,11 +671,13 @@ final class YetiAnalyzer extends YetiType {
             String[] fields =
                 (String[]) parts.toArray(new String[parts.size()]);
             YType res = new YType(depth), arg = res;
+            YType[] types = new YType[fields.length];
             for (int i = fields.length; --i >= 0;) {
+                types[i] = arg;
                 arg = selectMemberType(arg, fields[i], depth);
             }
             return new SelectMemberFun(new YType(FUN, new YType[] { arg, res }),
-                                       fields);
+                                       fields, types);
         }
         Code fun = resolve(sym, section, scope, depth);
         Code arg = analyze(section.expr[1], scope, depth);
@@ -632,6 +746,18 @@ final class YetiAnalyzer extends YetiType {
         limitDepth(res, arg.deref().param[0].deref().depth, 0);
         boolean poly = src.polymorph && src.type.allowedMembers != null &&
             ((YType) src.type.allowedMembers.get(field)).field == 0;
+        // field of known module - access it directly like imported binding
+        LoadModule module = LoadModule.of(src);
+        YType t = src.type.deref();
+        if (module != null && t.type == STRUCT && t.allowedMembers != null) {
+            YType ft = (YType) t.allowedMembers.get(field);
+            if (ft != null) {
+                BindRef ref = module.bindField(field, ft).getRef(op.line);
+                ref.type = res;
+                ref.polymorph = poly;
+                return ref;
+            }
+        }
         return new SelectMember(res, src, field, op.line, poly) {
             boolean mayAssign() {
                 YType t = st.type.deref();
@@ -688,7 +814,37 @@ final class YetiAnalyzer extends YetiType {
         Code[] parts = new Code[concat.expr.length];
         for (int i = 0; i < parts.length; ++i)
             parts[i] = analyze(concat.expr[i], scope, depth);
-        return new ConcatStrings(parts);
+        return concatStr(parts);
+    }
+
+    // flattens nested concatenations and joins adjacent constants,
+    // so that a ^ b ^ "\(c)" is generated as a single concatenation
+    static Code concatStr(Code[] parts) {
+        List all = new ArrayList(), res = new ArrayList();
+        for (int i = 0; i < parts.length; ++i)
+            if (parts[i] instanceof ConcatStrings)
+                all.addAll(Arrays.asList(((ConcatStrings) parts[i]).param));
+            else
+                all.add(parts[i]);
+        for (int i = 0; i < all.size(); ++i) {
+            Code part = (Code) all.get(i);
+            int last = res.size() - 1;
+            if (part instanceof StringConstant &&
+                    ((StringConstant) part).str.length() == 0)
+                continue;
+            if (part instanceof StringConstant && last >= 0 &&
+                    res.get(last) instanceof StringConstant)
+                res.set(last, new StringConstant(
+                    ((StringConstant) res.get(last)).str +
+                    ((StringConstant) part).str));
+            else
+                res.add(part);
+        }
+        if (res.isEmpty())
+            return new StringConstant("");
+        if (res.size() == 1 && res.get(0) instanceof StringConstant)
+            return (Code) res.get(0);
+        return new ConcatStrings((Code[]) res.toArray(new Code[res.size()]));
     }
 
     static YType mergeIfType(Node where, Scope scope, YType result, YType val) {
@@ -820,7 +976,7 @@ final class YetiAnalyzer extends YetiType {
                     Map.Entry e = (Map.Entry) j.next();
                     String name = ((String) e.getKey()).intern();
                     if (noRoot)
-                        for (Scope i = ROOT_SCOPE; i != null; i = i.outer)
+                        for (Scope i = ROOT_SCOPE; i != null; i = i.next(name))
                             if (i.name == name)
                                 continue members;
                     YType t = (YType) e.getValue();
@@ -1135,6 +1291,8 @@ final class YetiAnalyzer extends YetiType {
 
     static Code lambda(Function to, XNode lambda, Scope scope, int depth) {
         ++depth;
+        to.tailCalls =
+            (scope.ctx.compiler.globalFlags & Compiler.GF_TAIL_CALLS) != 0;
         YType expected = to.type == null ? null : to.type.deref();
         to.polymorph = true;
         Scope bodyScope = null;
@@ -1173,6 +1331,11 @@ final class YetiAnalyzer extends YetiType {
             lambda(f, bodyLambda, bodyScope, depth);
             wrapSeq(f, seq);
         } else {
+            if (!to.tailCalls && seq == null &&
+                    inlineSize(lambda.expr[1], INLINE_SIZE) <= INLINE_SIZE) {
+                to.inlineNode = lambda;
+                to.freeNames = new ArrayList();
+            }
             Code body = analyze(lambda.expr[1], bodyScope, depth);
             YType res; // try casting to expected type
             if (expected != null && expected.type == FUN &&
@@ -1192,7 +1355,7 @@ final class YetiAnalyzer extends YetiType {
 
         to.type = fun;
         to.bindName = lambda.expr.length > 2 ? lambda.expr[2].sym() : null;
-        to.body.markTail();
+        to.body.markTail(to);
         return to;
     }
 
@@ -1522,6 +1685,9 @@ final class YetiAnalyzer extends YetiType {
             Parser parser =
                 new Parser(sourceName, src, flags | compiler.globalFlags);
             Node n;
+            CompileProfile profile = compiler.profile;
+            if (profile != null)
+                profile.begin(CompileProfile.PARSE, null);
             try {
                 n = parser.parse(topLevel);
             } catch (CompileException ex) {
@@ -1529,6 +1695,8 @@ final class YetiAnalyzer extends YetiType {
                     ex.line = parser.currentLine();
                 throw ex;
             } finally {
+                if (profile != null)
+                    profile.end();
                 if (parser.sourceName != null &&
                     !parser.sourceName.equals(sourceName)) {
                     sourceName = parser.sourceName;
@@ -1575,6 +1743,8 @@ final class YetiAnalyzer extends YetiType {
                         depsModifiedTime = Long.MAX_VALUE;
                 }
             }
+            // hundreds of preloaded bindings, index to avoid walking them
+            scope.index();
             //System.err.println(sourceName + ": target:" + targetTime +
             //    " source:" + sourceTime + " depend:" + depsModifiedTime);
             if (targetTime > sourceTime && sourceTime != 0 &&
@@ -403,7 +403,13 @@ abstract class Core2 extends StaticRef {
                         return derivePolymorph && arg1.prepareConst(ctx) &&
                                 arg2.prepareConst(ctx);
                     }
+
+                    Code apply(Code arg3, YType res, int line) {
+                        Code r = apply3(arg1, arg2, arg3, res, line);
+                        return r != null ? r : super.apply(arg3, res, line);
+                    }
                 };
+                prepareApply2(arg1, arg2);
                 A r = new A();
                 r.type = res;
                 r.polymorph = derivePolymorph && arg1.polymorph
@@ -413,70 +419,222 @@ abstract class Core2 extends StaticRef {
         };
     }
 
+    // called by analyzer, when both arguments have been applied
+    void prepareApply2(Code arg1, Code arg2) {
+    }
+
     abstract void genApply2(Ctx ctx, Code arg1, Code arg2, int line);
+
+    // application to third argument, null when it should be a normal one
+    Code apply3(Code arg1, Code arg2, Code arg3, YType res, int line) {
+        return null;
+    }
 }
 
 final class For extends Core2 {
+    // the loop body function is generated inline
+    private boolean inline;
+
     For(int line) {
         super("for", YetiType.FOR_TYPE, line);
     }
 
-    void genApply2(Ctx ctx, Code list, Code fun, int line) {
-        Function f;
-        LoadVar arg = new LoadVar();
-        YType t;
-        if (!list.flagop(LIST_RANGE) && fun instanceof Function &&
-                ((f = (Function) fun).body instanceof CaseExpr ||
-                 (t = list.type.deref()).type == YetiType.MAP &&
-                 t.param[1].deref().type == YetiType.NONE) &&
-                f.uncapture(arg)) {
-            Label retry = new Label(), end = new Label();
-            list.gen(ctx);
-            ctx.visitLine(line);
-            ctx.typeInsn(CHECKCAST, "yeti/lang/AList");
-            ctx.insn(DUP);
-            ctx.jumpInsn(IFNULL, end);
-            ctx.insn(DUP);
-            ctx.methodInsn(INVOKEVIRTUAL, "yeti/lang/AList", "isEmpty", "()Z");
-            ctx.jumpInsn(IFNE, end);
-            // start of loop
+    void prepareApply2(Code list, Code fun) {
+        inline = fun instanceof Function &&
+                 ((Function) fun).prepareInline(1);
+    }
+
+    void genApply2(Ctx ctx, Code list, final Code fun, int line) {
+        if (inline) {
+            new InlineLoop(list, line) {
+                void genBody(Ctx ctx, int var) {
+                    genCall(ctx, (Function) fun, var, -1);
+                    ctx.visitLine(line);
+                    ctx.insn(POP); // ignore return value
+                }
+            }.gen(ctx);
+            return;
+        }
+        Label nop = new Label(), end = new Label();
+        list.gen(ctx);
+        fun.gen(ctx);
+        ctx.visitLine(line);
+        ctx.insn(SWAP);
+        ctx.typeInsn(CHECKCAST, "yeti/lang/AList");
+        ctx.insn(DUP_X1);
+        ctx.jumpInsn(IFNULL, nop);
+        ctx.methodInsn(INVOKEVIRTUAL, "yeti/lang/AList",
+                            "forEach", "(Ljava/lang/Object;)V");
+        ctx.jumpInsn(GOTO, end);
+        ctx.visitLabel(nop);
+        ctx.insn(POP2);
+        ctx.visitLabel(end);
+        ctx.insn(ACONST_NULL);
+    }
+}
+
+/*
+ * Iteration over list with the loop body generated into the caller's
+ * method, so no closure gets allocated for the body. The body function
+ * must have been prepared for this using Function.prepareInline.
+ */
+abstract class InlineLoop extends Code {
+    private final Code list;
+    final int line;
+
+    InlineLoop(Code list, int line) {
+        this.list = list;
+        this.line = line;
+    }
+
+    // generates loop body, having current element in the register var
+    abstract void genBody(Ctx ctx, int var);
+
+    void gen(Ctx ctx) {
+        genLoop(ctx);
+        ctx.insn(ACONST_NULL);
+    }
+
+    void genLoop(Ctx ctx) {
+        Label retry = new Label(), next = new Label();
+        Range range = ListConstructor.range(list);
+        int var = ctx.localVarCount++, iter = ctx.localVarCount++;
+        if (range != null) {
+            // [a .. b] is counted without creating the list
+            range.from.gen(ctx);
+            ctx.typeInsn(CHECKCAST, "yeti/lang/Num");
+            ctx.varInsn(ASTORE, var);
+            range.to.gen(ctx);
+            ctx.varInsn(ASTORE, iter);
+            ctx.jumpInsn(GOTO, next);
             ctx.visitLabel(retry);
-            ctx.insn(DUP);
-            ctx.methodInsn(INVOKEVIRTUAL, "yeti/lang/AIter",
-                                "first", "()Ljava/lang/Object;");
-            // invoke body block
-            ctx.varInsn(ASTORE, arg.var = ctx.localVarCount++);
-            ++ctx.tainted; // disable argument-nulling - we're in cycle
-            // new closure has to be created on each cycle
-            // as closure vars could be captured
-            f.genClosureInit(ctx);
-            f.body.gen(ctx);
-            --ctx.tainted;
-            ctx.visitLine(line);
-            ctx.insn(POP); // ignore return value
-            // next
-            ctx.methodInsn(INVOKEVIRTUAL, "yeti/lang/AIter",
-                                "next", "()Lyeti/lang/AIter;");
-            ctx.insn(DUP);
-            ctx.jumpInsn(IFNONNULL, retry);
-            ctx.visitLabel(end);
-        } else {
-            Label nop = new Label(), end = new Label();
-            list.gen(ctx);
-            fun.gen(ctx);
-            ctx.visitLine(line);
-            ctx.insn(SWAP);
-            ctx.typeInsn(CHECKCAST, "yeti/lang/AList");
-            ctx.insn(DUP_X1);
-            ctx.jumpInsn(IFNULL, nop);
-            ctx.methodInsn(INVOKEVIRTUAL, "yeti/lang/AList",
-                                "forEach", "(Ljava/lang/Object;)V");
-            ctx.jumpInsn(GOTO, end);
-            ctx.visitLabel(nop);
-            ctx.insn(POP2);
-            ctx.visitLabel(end);
-            ctx.insn(ACONST_NULL);
+            genBody(ctx, var);
+            ctx.load(var).insn(LCONST_1);
+            ctx.methodInsn(INVOKEVIRTUAL, "yeti/lang/Num",
+                           "add", "(J)Lyeti/lang/Num;");
+            ctx.varInsn(ASTORE, var);
+            ctx.visitLabel(next);
+            ctx.load(var).load(iter);
+            ctx.methodInsn(INVOKEVIRTUAL, "yeti/lang/Num",
+                           "compareTo", "(Ljava/lang/Object;)I");
+            ctx.jumpInsn(IFLE, retry);
+            return;
         }
+        list.gen(ctx);
+        ctx.visitLine(line);
+        ctx.typeInsn(CHECKCAST, "yeti/lang/AList");
+        ctx.insn(DUP);
+        ctx.varInsn(ASTORE, iter);
+        ctx.jumpInsn(IFNULL, next);
+        ctx.load(iter).methodInsn(INVOKEVIRTUAL, "yeti/lang/AList",
+                                  "isEmpty", "()Z");
+        ctx.jumpInsn(IFNE, next);
+        ctx.visitLabel(retry);
+        ctx.load(iter).methodInsn(INVOKEVIRTUAL, "yeti/lang/AIter",
+                                  "first", "()Ljava/lang/Object;");
+        ctx.varInsn(ASTORE, var);
+        genBody(ctx, var);
+        ctx.load(iter).methodInsn(INVOKEVIRTUAL, "yeti/lang/AIter",
+                                  "next", "()Lyeti/lang/AIter;");
+        ctx.insn(DUP);
+        ctx.varInsn(ASTORE, iter);
+        ctx.jumpInsn(IFNONNULL, retry);
+        ctx.visitLabel(next);
+    }
+
+    /*
+     * Generates the body of function f applied to argument(s) in
+     * registers arg1 and arg2 (arg2 is -1 for single argument function).
+     */
+    static void genCall(Ctx ctx, Function f, int arg1, int arg2) {
+        LoadVar a = new LoadVar(), b = new LoadVar();
+        a.var = arg1;
+        b.var = arg2;
+        if (!(arg2 < 0 ? f.uncapture(a) : f.uncapture(a, b)))
+            throw new IllegalStateException("Cannot inline the loop body");
+        ++ctx.tainted; // disable argument-nulling - we're in cycle
+        // new closure has to be created on each cycle
+        // as closure vars could be captured
+        f.genClosureInit(ctx);
+        if (arg2 >= 0)
+            (f = (Function) f.body).genClosureInit(ctx);
+        f.body.gen(ctx);
+        --ctx.tainted;
+    }
+}
+
+// fold do acc x: ... done value list, as inline loop
+final class FoldLoop extends InlineLoop {
+    private final Function f;
+    private final Code value;
+    private int acc;
+
+    FoldLoop(Function f, Code value, Code list, YType res, int line) {
+        super(list, line);
+        this.f = f;
+        this.value = value;
+        type = res;
+    }
+
+    void genBody(Ctx ctx, int var) {
+        genCall(ctx, f, acc, var);
+        ctx.visitLine(line);
+        ctx.varInsn(ASTORE, acc);
+    }
+
+    void gen(Ctx ctx) {
+        value.gen(ctx);
+        ctx.varInsn(ASTORE, acc = ctx.localVarCount++);
+        genLoop(ctx);
+        ctx.load(acc);
+    }
+}
+
+// forHash hash do key value: ... done, as inline loop
+final class ForHashLoop extends Code {
+    private final Function f;
+    private final Code hash;
+    private final int line;
+
+    ForHashLoop(Function f, Code hash, int line) {
+        type = YetiType.UNIT_TYPE;
+        this.f = f;
+        this.hash = hash;
+        this.line = line;
+    }
+
+    void gen(Ctx ctx) {
+        Label retry = new Label(), next = new Label();
+        int iter = ctx.localVarCount++, key = ctx.localVarCount++,
+            value = ctx.localVarCount++;
+        hash.gen(ctx);
+        ctx.visitLine(line);
+        ctx.typeInsn(CHECKCAST, "java/util/Map");
+        ctx.methodInsn(INVOKEINTERFACE, "java/util/Map",
+                       "entrySet", "()Ljava/util/Set;");
+        ctx.methodInsn(INVOKEINTERFACE, "java/util/Set",
+                       "iterator", "()Ljava/util/Iterator;");
+        ctx.varInsn(ASTORE, iter);
+        ctx.jumpInsn(GOTO, next);
+        ctx.visitLabel(retry);
+        ctx.load(iter).methodInsn(INVOKEINTERFACE, "java/util/Iterator",
+                                  "next", "()Ljava/lang/Object;");
+        ctx.typeInsn(CHECKCAST, "java/util/Map$Entry");
+        ctx.insn(DUP);
+        ctx.methodInsn(INVOKEINTERFACE, "java/util/Map$Entry",
+                       "getKey", "()Ljava/lang/Object;");
+        ctx.varInsn(ASTORE, key);
+        ctx.methodInsn(INVOKEINTERFACE, "java/util/Map$Entry",
+                       "getValue", "()Ljava/lang/Object;");
+        ctx.varInsn(ASTORE, value);
+        InlineLoop.genCall(ctx, f, key, value);
+        ctx.visitLine(line);
+        ctx.insn(POP);
+        ctx.visitLabel(next);
+        ctx.load(iter).methodInsn(INVOKEINTERFACE, "java/util/Iterator",
+                                  "hasNext", "()Z");
+        ctx.jumpInsn(IFNE, retry);
+        ctx.insn(ACONST_NULL);
     }
 }
 
@@ -495,6 +653,13 @@ final class Compose extends Core2 {
         ctx.visitInit("yeti/lang/Compose",
                       "(Ljava/lang/Object;Ljava/lang/Object;)V");
     }
+
+    // (f . g) x is f (g x), no need for the Compose object
+    Code apply3(Code f, Code g, Code x, YType res, int line) {
+        YType t = g.type.deref();
+        return t.type != YetiType.FUN ? null
+                : f.apply(g.apply(x, t.param[1], line), res, line);
+    }
 }
 
 final class Synchronized extends Core2 {
@@ -502,6 +667,11 @@ final class Synchronized extends Core2 {
         super("synchronized", YetiType.SYNCHRONIZED_TYPE, line);
     }
 
+    void prepareApply2(Code monitor, Code block) {
+        if (block instanceof Function)
+            ((Function) block).prepareInline(1);
+    }
+
     void genApply2(Ctx ctx, Code monitor, Code block, int line) {
         monitor.gen(ctx);
         int monitorVar = ctx.localVarCount++;
@@ -558,9 +728,9 @@ abstract class BinOpRef extends BindRef {
             binGenIf(ctx, arg1, arg2, to, ifTrue);
         }
 
-        void markTail() {
+        void markTail(Function f) {
             if (markTail2) {
-                arg2.markTail();
+                arg2.markTail(f);
             }
         }
     }
@@ -57,6 +57,8 @@ class Apply extends Code {
     final int line;
     int arity = 1;
     BindExpr.Ref ref;
+    // function in which tail position the call is returned as TailCall
+    Function tailOf;
 
     Apply(YType res, Code fun, Code arg, int line) {
         type = res;
@@ -111,6 +113,19 @@ class Apply extends Code {
             }
         }
 
+        if (tailOf != null && tailOf.splitTail) {
+            // let the trampoline in the functions apply do the call
+            ctx.typeInsn(NEW, "yeti/lang/TailCall");
+            ctx.insn(DUP);
+            fun.gen(ctx);
+            ctx.visitLine(line);
+            ctx.typeInsn(CHECKCAST, "yeti/lang/Fun");
+            arg.gen(ctx);
+            ctx.visitInit("yeti/lang/TailCall",
+                          "(Lyeti/lang/Fun;Ljava/lang/Object;)V");
+            return;
+        }
+
         Apply to = (arity & 1) == 0 && arity - argc > 1 ? (Apply) fun : this;
         to.fun.gen(ctx);
         ctx.visitLine(to.line);
@@ -126,6 +141,25 @@ class Apply extends Code {
         }
     }
 
+    /*
+     * Calls to the function fields of the structure being defined
+     * (mutual recursion) or any calls with the tail call mode are
+     * returned to the trampoline, when in the tail position.
+     * The structure decides on the field calls after analysing all
+     * fields, as only calls in a cycle need the trampoline.
+     */
+    void markTail(Function f) {
+        if (f.tailCalls) {
+            tailOf = f;
+            f.trampoline = true;
+        } else if (fun instanceof BindRef &&
+                   StructConstructor.isFunField(((BindRef) fun).binder)) {
+            if (f.fieldTailCalls == null)
+                f.fieldTailCalls = new ArrayList();
+            f.fieldTailCalls.add(this);
+        }
+    }
+
     Code apply(Code arg, final YType res, int line) {
         Apply a = new Apply(res, this, arg, line);
         a.arity = arity + 1;
@@ -318,7 +352,7 @@ abstract class CaptureRef extends BindRef {
             ctx.jumpInsn(GOTO, capturer.restart);
         }
 
-        void markTail() {
+        void markTail(Function f) {
             tail = true;
         }
 
@@ -393,6 +427,7 @@ final class Capture extends CaptureRef implements CaptureWrapper, CodeGen {
     CaptureWrapper wrapper;
     Object identity;
     int localVar = -1; // -1 - use this (TryCatch captures use 0 localVar)
+    int wrapped; // count of inner closures capturing through this
     boolean uncaptured;
     boolean ignoreGet;
     private String refType;
@@ -493,7 +528,21 @@ final class Capture extends CaptureRef implements CaptureWrapper, CodeGen {
         if (uncaptured) {
             return ref.capture();
         }
-        return wrapper == null ? null : this;
+        if (wrapper == null)
+            return null;
+        ++wrapped;
+        return this;
+    }
+
+    // The capturing closure will be generated inline, so the captured
+    // variable don't need wrapping for it.
+    void release() {
+        if (wrapped == 0) {
+            if (wrapper instanceof BindExpr)
+                ((BindExpr) wrapper).uncapture();
+            else if (wrapper instanceof Capture)
+                --((Capture) wrapper).wrapped;
+        }
     }
 
     public Object captureIdentity() {
@@ -542,7 +591,7 @@ abstract class AClosure extends Code implements Closure {
         int id = -1, mvarcount = 0;
         for (int i = closureVars.size(); --i >= 0;) {
             BindExpr bind = (BindExpr) closureVars.get(i);
-            if (bind.assigned && bind.captured) {
+            if (bind.assigned && bind.captured > 0) {
                 if (id == -1) {
                     id = ctx.localVarCount++;
                 }
@@ -671,6 +720,18 @@ final class Function extends CapturingClosure implements Binder {
     boolean capture1;
     // not in struct - capture final fields
     private boolean notInStruct;
+    // compile all calls in tail position as tail calls (GF_TAIL_CALLS)
+    boolean tailCalls;
+    // some calls in tail position are returned as TailCall
+    boolean trampoline;
+    // tail position calls to structure function fields (Apply)
+    List fieldTailCalls;
+    // body is in tailApply method, and apply runs the trampoline
+    boolean splitTail;
+    // small lambda, that may be reanalysed at call sites for inlining
+    YetiParser.XNode inlineNode;
+    // names resolved outside of the inlineable lambda
+    List freeNames;
 
     final BindRef arg = new BindRef() {
         void gen(Ctx ctx) {
@@ -704,6 +765,32 @@ final class Function extends CapturingClosure implements Binder {
         return arg;
     }
 
+    // non-recursive small lambda, that can be inlined by reanalysing
+    boolean inlineable() {
+        return inlineNode != null && selfRef == null;
+    }
+
+    /*
+     * Prepares the function of argc arguments to be generated inline
+     * (as a loop body for example), while analysing the application.
+     * The captured variables won't be wrapped for the function then.
+     * Returns false, when the function can't be inlined.
+     */
+    boolean prepareInline(int argc) {
+        Function f = this;
+        for (int i = 1; i < argc; ++i) {
+            if (f.selfRef != null || !(f.body instanceof Function))
+                return false;
+            f = (Function) f.body;
+        }
+        if (f.selfRef != null || f.merged)
+            return false;
+        for (f = this; --argc >= 0; f = argc > 0 ? (Function) f.body : null)
+            for (Capture c = f.captures; c != null; c = c.next)
+                c.release();
+        return true;
+    }
+
     // uncaptures captured variables if possible
     // useful for function inlineing, don't work with self-refs
     boolean uncapture(Code arg) {
@@ -715,12 +802,23 @@ final class Function extends CapturingClosure implements Binder {
         return true;
     }
 
+    // uncaptures two-argument function, that may be merged
+    boolean uncapture(Code arg1, Code arg2) {
+        if (selfRef != null || !(body instanceof Function) ||
+                !((Function) body).uncapture(arg2))
+            return false;
+        for (Capture c = captures; c != null; c = c.next)
+            c.uncaptured = true;
+        uncaptureArg = arg1;
+        return true;
+    }
+
     void setBody(Code body) {
         this.body = body;
         if (body instanceof Function) {
             Function bodyFun = (Function) body;
             bodyFun.outer = this;
-            if (argVar == 1 && !bodyFun.merged &&
+            if (argVar == 1 && !bodyFun.merged && !tailCalls &&
                 bodyFun.selfRef == null && captures == null) {
                 merged = true;
                 ++bodyFun.argVar;
@@ -951,10 +1049,12 @@ final class Function extends CapturingClosure implements Binder {
         if (!notStruct)
             fun.createInit(shared ? ACC_PRIVATE : 0, funClass);
 
+        splitTail = trampoline && argVar == 1;
         Ctx apply = argVar == 2
             ? fun.newMethod(ACC_PUBLIC + ACC_FINAL, "apply",
                 "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;")
-            : fun.newMethod(ACC_PUBLIC + ACC_FINAL, "apply",
+            : fun.newMethod(ACC_PUBLIC + ACC_FINAL,
+                splitTail ? "tailApply" : "apply",
                 "(Ljava/lang/Object;)Ljava/lang/Object;");
         apply.localVarCount = argVar + 1; // this, arg
         
@@ -980,6 +1080,16 @@ final class Function extends CapturingClosure implements Binder {
         restart = null;
         apply.insn(ARETURN);
         apply.closeMethod();
+        if (splitTail) {
+            apply = fun.newMethod(ACC_PUBLIC + ACC_FINAL, "apply",
+                                  "(Ljava/lang/Object;)Ljava/lang/Object;");
+            apply.load(0).load(1).methodInsn(INVOKEVIRTUAL, name,
+                "tailApply", "(Ljava/lang/Object;)Ljava/lang/Object;");
+            apply.methodInsn(INVOKESTATIC, "yeti/lang/TailCall", "run",
+                             "(Ljava/lang/Object;)Ljava/lang/Object;");
+            apply.insn(ARETURN);
+            apply.closeMethod();
+        }
 
         Ctx valueCtx =
             shared ? fun.newMethod(ACC_STATIC, "<clinit>", "()V") : ctx;
@@ -1058,7 +1168,8 @@ final class Function extends CapturingClosure implements Binder {
 
         BindExpr bindExpr = null;
         // First try determine if we can reduce into method.
-        if (selfBind instanceof BindExpr &&
+        // methods are called directly, not through tailApply
+        if (!tailCalls && selfBind instanceof BindExpr &&
                 (bindExpr = (BindExpr) selfBind).evalId == -1 &&
                 bindExpr.result != null) {
             int arityLimit = 99999999;
@@ -117,44 +117,56 @@ final class Constants implements Opcodes {
                             "[Ljava/lang/String;");
     }
 
-    // generates [Ljava/lang/String;[Z into stack, using constant cache
+    // generates Lyeti/lang/StructShape; into stack, using constant cache
     void structInitArg(Ctx ctx_, StructField[] fields,
-                       int fieldCount, boolean nomutable) {
+                       int fieldCount, boolean inherits) {
         String[] fieldNameArr = new String[fieldCount + 1];
         char[] mutableArr = new char[fieldNameArr.length];
-        mutableArr[0] = '@';
+        // inherited fields refer into the parent and getters compute
+        // the value, so those shapes are marked as computed
+        boolean computed = inherits;
         int i, mutableCount = 0;
         for (i = 1; i < fieldNameArr.length; ++i) {
             StructField f = fields[i - 1];
             fieldNameArr[i] = f.name;
+            computed |= f.property != 0;
             if (f.mutable || f.property > 0) {
                 mutableArr[i] = '\001';
                 ++mutableCount;
             }
         }
-        stringArray(ctx_, fieldNameArr);
-        if (nomutable || mutableCount == 0) {
-            ctx_.insn(ACONST_NULL);
-            return;
-        }
-        String key = new String(mutableArr);
+        mutableArr[0] = computed ? '!' : '@';
+        List key = new ArrayList(Arrays.asList(fieldNameArr));
+        key.set(0, new String(mutableArr));
         String name = (String) constants.get(key);
         if (name == null) {
             name = "_".concat(Integer.toString(ctx.fieldCounter++));
-            ctx.cw.visitField(ACC_STATIC | ACC_FINAL | ACC_SYNTHETIC,
-                              name, "[Z", null, null).visitEnd();
-            sb.intConst(fieldCount);
-            sb.visitIntInsn(NEWARRAY, T_BOOLEAN);
-            for (i = 0; i < fieldCount; ++i) {
-                sb.insn(DUP);
-                sb.intConst(i);
-                sb.intConst(mutableArr[i + 1]);
-                sb.insn(BASTORE);
+            ctx.cw.visitField(ACC_STATIC | ACC_FINAL | ACC_SYNTHETIC, name,
+                              "Lyeti/lang/StructShape;", null, null).visitEnd();
+            if (sb == null)
+                sb = ctx.newMethod(ACC_STATIC, "<clinit>", "()V");
+            stringArray(sb, fieldNameArr);
+            if (mutableCount == 0) {
+                sb.insn(ACONST_NULL);
+            } else {
+                sb.intConst(fieldCount);
+                sb.visitIntInsn(NEWARRAY, T_BOOLEAN);
+                for (i = 0; i < fieldCount; ++i) {
+                    sb.insn(DUP);
+                    sb.intConst(i);
+                    sb.intConst(mutableArr[i + 1]);
+                    sb.insn(BASTORE);
+                }
             }
-            sb.fieldInsn(PUTSTATIC, ctx.className, name, "[Z");
+            sb.intConst(computed ? 1 : 0);
+            sb.methodInsn(INVOKESTATIC, "yeti/lang/StructShape", "get",
+                "([Ljava/lang/String;[ZZ)Lyeti/lang/StructShape;");
+            sb.fieldInsn(PUTSTATIC, ctx.className, name,
+                         "Lyeti/lang/StructShape;");
             constants.put(key, name);
         }
-        ctx_.fieldInsn(GETSTATIC, ctx.className, name, "[Z");
+        ctx_.fieldInsn(GETSTATIC, ctx.className, name,
+                       "Lyeti/lang/StructShape;");
     }
 }
 
@@ -454,6 +466,16 @@ abstract class Code implements Opcodes {
         return new Code() {
             { type = t; }
 
+            // (`op` y) x is x `op` y, when the order of evaluating
+            // the arguments doesn't matter
+            Code apply(Code arg, YType res, int line) {
+                YType ft = Code.this.type.deref();
+                if (!arg2.flagop(PURE) || ft.type != YetiType.FUN)
+                    return super.apply(arg, res, line);
+                return Code.this.apply(arg, ft.param[1], line)
+                                .apply(arg2, res, line);
+            }
+
             void gen(Ctx ctx) {
                 ctx.typeInsn(NEW, "yeti/lang/Bind2nd");
                 ctx.insn(DUP);
@@ -498,7 +520,7 @@ abstract class Code implements Opcodes {
 
     // Used to tell that this code is at tail position in a function.
     // Useful for doing tail call optimisations.
-    void markTail() {
+    void markTail(Function f) {
     }
 
     boolean flagop(int flag) {
@@ -858,8 +880,46 @@ final class ConcatStrings extends Code {
         this.param = param;
     }
 
+    // Appends the parts to a StringBuilder, avoiding separate
+    // string conversions of the non-string values.
+    private void genBuilder(Ctx ctx) {
+        int capacity = 0;
+        for (int i = 0; i < param.length; ++i)
+            capacity += param[i] instanceof StringConstant
+                ? ((StringConstant) param[i]).str.length() : 16;
+        ctx.typeInsn(NEW, "java/lang/StringBuilder");
+        ctx.insn(DUP);
+        ctx.intConst(capacity);
+        ctx.visitInit("java/lang/StringBuilder", "(I)V");
+        for (int i = 0; i < param.length; ++i) {
+            param[i].gen(ctx);
+            int t = param[i].type.deref().type;
+            if (t == YetiType.STR) {
+                ctx.typeInsn(CHECKCAST, "java/lang/String");
+                ctx.methodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder",
+                    "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;");
+            } else if (t == YetiType.NUM) {
+                ctx.methodInsn(INVOKESTATIC, "yeti/lang/Core", "appendNum",
+                    "(Ljava/lang/StringBuilder;Ljava/lang/Object;)"
+                    + "Ljava/lang/StringBuilder;");
+            } else {
+                ctx.methodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder",
+                    "append", "(Ljava/lang/Object;)Ljava/lang/StringBuilder;");
+            }
+        }
+        ctx.methodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder",
+                       "toString", "()Ljava/lang/String;");
+        ctx.forceType("java/lang/String");
+    }
+
     void gen(Ctx ctx) {
         boolean arr = false;
+        if (param.length > 1)
+            for (int i = 0; i < param.length; ++i)
+                if (param[i].type.deref().type != YetiType.STR) {
+                    genBuilder(ctx);
+                    return;
+                }
         if (param.length > 2) {
             arr = true;
             ctx.intConst(param.length);
@@ -1242,13 +1302,28 @@ abstract class SelectMember extends BindRef implements CodeGen {
 
 final class SelectMemberFun extends Code implements CodeGen {
     String[] names;
+    YType[] types; // types of the selected members
     
-    SelectMemberFun(YType type, String[] names) {
+    SelectMemberFun(YType type, String[] names, YType[] types) {
         this.type = type;
         this.names = names;
+        this.types = types;
         this.polymorph = true;
     }
 
+    // (.a.b) x is same as x.a.b, no need for the Selector objects
+    Code apply(Code arg, YType res, int line) {
+        for (int i = 0; i < names.length; ++i) {
+            arg = new SelectMember(i + 1 < names.length ? types[i] : res,
+                                   arg, names[i], line, false) {
+                boolean mayAssign() {
+                    return false;
+                }
+            };
+        }
+        return arg;
+    }
+
     public void gen2(Ctx ctx, Code param, int line) {
         for (int i = 1; i < names.length; ++i) {
             ctx.typeInsn(NEW, "yeti/lang/Compose");
@@ -1364,9 +1439,9 @@ final class ConditionalExpr extends Code {
         }
     }
 
-    void markTail() {
+    void markTail(Function f) {
         for (int i = choices.length; --i >= 0;) {
-            choices[i][0].markTail();
+            choices[i][0].markTail(f);
         }
     }
 }
@@ -1391,8 +1466,8 @@ class SeqExpr extends Code {
         result.genIf(ctx, to, ifTrue);
     }
 
-    void markTail() {
-        result.markTail();
+    void markTail(Function f) {
+        result.markTail(f);
     }
 }
 
@@ -1408,7 +1483,7 @@ final class BindExpr extends SeqExpr implements Binder, CaptureWrapper {
     private String javaDescr;
     private Closure closure;
     boolean assigned;
-    boolean captured;
+    int captured; // count of closures capturing the var
     Ref refs;
     int evalId = -1;
     private boolean directBind;
@@ -1455,9 +1530,9 @@ final class BindExpr extends SeqExpr implements Binder, CaptureWrapper {
         }
 
         CaptureWrapper capture() {
-            captured = true;
             if (!var)
                 return null;
+            ++captured;
             ++bindingUsed; // reference through wrapper
             return BindExpr.this;
         }
@@ -1476,6 +1551,17 @@ final class BindExpr extends SeqExpr implements Binder, CaptureWrapper {
         this.var = var;
     }
 
+    // Capturing closure will be generated inline.
+    void uncapture() {
+        --captured;
+        --bindingUsed;
+    }
+
+    // The bound value, when it can't change.
+    Code value() {
+        return var ? null : st;
+    }
+
     void setMVarId(Closure closure, int arrayId, int index) {
         this.closure = closure;
         mvar = arrayId;
@@ -1511,9 +1597,11 @@ final class BindExpr extends SeqExpr implements Binder, CaptureWrapper {
             if (directField == null) {
                 ctx.load(id);
                 int t;
-                // garbage collect infinite lists
+                // last use - drop the reference, so the value (like
+                // head of infinite list) could be garbage collected
                 if (bindingUsed == 0 && ctx.tainted == 0 &&
-                      ((t = st.type.deref().type) == 0 || t == YetiType.MAP)) {
+                      (t = st.type.deref().type) != YetiType.NUM &&
+                      t != YetiType.BOOL && t != YetiType.UNIT) {
                     ctx.insn(ACONST_NULL);
                     ctx.varInsn(ASTORE, id);
                 }
@@ -1598,14 +1686,20 @@ final class BindExpr extends SeqExpr implements Binder, CaptureWrapper {
         }
     }
 
+    // Locals of the binding and its scope are dead after the result,
+    // so the following code can reuse their slots.
     void gen(Ctx ctx) {
+        int slots = ctx.localVarCount;
         genBind(ctx);
         result.gen(ctx);
+        ctx.localVarCount = slots;
     }
 
     void genIf(Ctx ctx, Label to, boolean ifTrue) {
+        int slots = ctx.localVarCount;
         genBind(ctx);
         result.genIf(ctx, to, ifTrue);
+        ctx.localVarCount = slots;
     }
 }
 
@@ -1623,6 +1717,17 @@ final class LoadModule extends Code {
         polymorph = true;
     }
 
+    // Statically known module of the value (load or binding to a load).
+    static LoadModule of(Code code) {
+        while (code instanceof BindRef) {
+            Binder binder = ((BindRef) code).binder;
+            if (!(binder instanceof BindExpr))
+                return null;
+            code = ((BindExpr) binder).value();
+        }
+        return code instanceof LoadModule ? (LoadModule) code : null;
+    }
+
     void gen(Ctx ctx) {
         if (checkUsed && !used)
             ctx.insn(ACONST_NULL);
@@ -1696,6 +1801,14 @@ final class ListConstructor extends Code implements CodeGen {
         key = Arrays.asList(ak);
     }
 
+    // the range, when the code is a single range list constructor
+    static Range range(Code list) {
+        Code[] items;
+        return list instanceof ListConstructor &&
+               (items = ((ListConstructor) list).items).length == 1 &&
+               items[0] instanceof Range ? (Range) items[0] : null;
+    }
+
     public void gen2(Ctx ctx, Code param, int line) {
         for (int i = 0; i < items.length; ++i) {
             if (!(items[i] instanceof Range)) {
@@ -164,6 +164,9 @@ class Scope {
     Closure closure; // non-null means outer scopes must be proxied
     YetiType.ClassBinding importClass;
     YetiType.ScopeCtx ctx;
+    // nearest outer scopes by name, up to the indexEnd (see indexScope)
+    private Map index;
+    private Scope indexEnd;
 
     Scope(Scope outer, String name, Binder binder) {
         this.outer = outer;
@@ -172,6 +175,34 @@ class Scope {
         ctx = outer == null ? null : outer.ctx;
     }
 
+    // next outer scope that could bind the name
+    Scope next(String name) {
+        if (index == null)
+            return outer;
+        Scope s = (Scope) index.get(name);
+        return s != null ? s : indexEnd;
+    }
+
+    /**
+     * Indexes the outer scopes by name, so that lookups with next()
+     * can skip the ones not having the name. Stops at the next indexed
+     * scope. Scopes with closure can't be skipped, as the references
+     * through those must be proxied, so then no index is created.
+     */
+    Scope index() {
+        Map index = new IdentityHashMap();
+        Scope s = outer;
+        for (; s != null && s.index == null; s = s.outer) {
+            if (s.closure != null)
+                return this;
+            if (s.name != null && !index.containsKey(s.name))
+                index.put(s.name, s);
+        }
+        this.index = index;
+        indexEnd = s;
+        return this;
+    }
+
     YType[] typedef(boolean use) {
         return null;
     }
@@ -379,6 +410,10 @@ class YetiType implements YetiParser {
         bindImport("String", "java/lang/String",
    null))))))))))))))))))))))))))))))))))))))))))))))))))))))))))))))))))))))));
 
+    static {
+        ROOT_SCOPE.index();
+    }
+
     static final Scope ROOT_SCOPE_SYS =
         bindImport("System", "java/lang/System",
         bindImport("Class", "java/lang/Class", ROOT_SCOPE));
@@ -460,6 +495,7 @@ class YetiType implements YetiParser {
         final String className;
         final Map opaqueTypes;
         final Compiler compiler;
+        int inlining; // function bodies being inlined
 
         ScopeCtx(String className_, Compiler compiler_) {
             packageName = JavaType.packageOfClass(className_);
@@ -878,14 +914,20 @@ class YetiType implements YetiParser {
 
     private static BindRef resolveRef(String sym, Node where,
                                       Scope scope, Scope[] r) {
-        for (; scope != null; scope = scope.outer) {
+        for (; scope != null; scope = scope.next(sym)) {
             if (scope.name == sym && scope.binder != null) {
                 r[0] = scope;
                 return scope.binder.getRef(where.line);
             }
-            if (scope.closure != null)
-                return scope.closure.refProxy(
-                            resolveRef(sym, where, scope.outer, r));
+            if (scope.closure != null) {
+                BindRef ref = resolveRef(sym, where, scope.next(sym), r);
+                if (scope.closure instanceof Function) {
+                    List free = ((Function) scope.closure).freeNames;
+                    if (free != null && !free.contains(sym))
+                        free.add(sym);
+                }
+                return scope.closure.refProxy(ref);
+            }
         }
         throw new CompileException(where, "Unknown identifier: " + sym);
     }
@@ -907,7 +949,7 @@ class YetiType implements YetiParser {
     static YType resolveClass(String name, Scope scope, boolean shadow) {
         if (name.indexOf('/') >= 0)
             return JavaType.typeOfClass(null, name);
-        for (; scope != null; scope = scope.outer)
+        for (; scope != null; scope = scope.next(name))
             if (scope.name == name) {
                 if (scope.importClass != null)
                     return scope.importClass.type;
@@ -925,7 +967,7 @@ class YetiType implements YetiParser {
             packageName = null;
         } else if (refs) {
             List proxies = new ArrayList();
-            for (Scope s = scope; s != null; s = s.outer) {
+            for (Scope s = scope; s != null; s = s.next(name)) {
                 if (s.name == name && s.importClass != null)
                     return s.importClass.dup(proxies);
                 if (s.closure != null)
@@ -1222,7 +1264,7 @@ class YetiType implements YetiParser {
 
     static YType resolveTypeDef(Scope scope, String name, YType[] param,
                                 int depth, TypeNode src, int def) {
-        for (; scope != null; scope = scope.outer) {
+        for (; scope != null; scope = scope.next(name)) {
             YType[] typeDef;
             if (scope.name == name && (typeDef = scope.typedef(true)) != null) {
                 if (typeDef.length - 1 != param.length)
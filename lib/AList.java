@@ -86,13 +86,6 @@ public abstract class AList extends AIter implements Comparable, Coll {
 
     @Override
     public String toString() {
-        StringBuilder buf = new StringBuilder("[");
-        buf.append(Core.show(first()));
-        for (AIter i = rest(); i != null; i = i.next()) {
-            buf.append(',');
-            buf.append(Core.show(i.first()));
-        }
-        buf.append(']');
-        return buf.toString();
+        return Show.show(this);
     }
 }
@@ -34,32 +34,36 @@ import java.io.Serializable;
 
 /** Yeti core library - structure default implementation. */
 public abstract class AStruct implements Struct, Serializable {
-    final String[] names;
-    private final boolean[] vars;
+    final StructShape shape;
+    private transient int hash;
 
     public AStruct(String[] names_, boolean[] vars_) {
-        names = names_;
-        vars = vars_;
+        shape = names_ == null ? null : StructShape.get(names_, vars_);
+    }
+
+    public AStruct(StructShape shape_) {
+        shape = shape_;
     }
 
     @Override
     public int count() {
-        return names.length;
+        return shape.names.length;
     }
 
     @Override
     public String name(int field) {
-        return names[field];
+        return shape.names[field];
     }
 
     @Override
     public String eqName(int field) {
-        return names[field];
+        return shape.names[field];
     }
 
     @Override
     public Object ref(int field, int[] index, int at) {
         index[at + 1] = 0;
+        boolean[] vars = shape.vars;
         if (vars != null && vars[field]) {
             index[at] = field;
             return this;
@@ -73,22 +77,65 @@ public abstract class AStruct implements Struct, Serializable {
         Unsafe.unsafeThrow(new NoSuchFieldException(name));
     }
 
+    // values that can't change their hash code
+    private static boolean hashStable(Object v) {
+        while (v instanceof Tag)
+            v = ((Tag) v).value;
+        return v == null || v instanceof String || v instanceof Num ||
+               v instanceof Boolean ||
+               v instanceof AStruct && ((AStruct) v).hash != 0;
+    }
+
     @Override
     public int hashCode() {
-        int h = 0;
+        int h = hash;
+        if (h != 0)
+            return h;
+        // immutable structure containing only immutable values can cache it
+        boolean stable = shape != null && shape.vars == null &&
+                         !shape.computed;
         for (int i = 0, cnt = count(); i < cnt; ++i) {
             String name = eqName(i);
             if (name != "") {
                 Object v = get(i);
                 h += name.hashCode() ^ (v == null ? 0 : v.hashCode());
+                if (stable && !hashStable(v))
+                    stable = false;
             }
         }
+        if (stable)
+            hash = h;
         return h;
     }
 
     @Override
     public boolean equals(Object o) {
         Struct st = (Struct) o;
+        if (st == this)
+            return true;
+        // same shape - compare field values by position
+        if (st instanceof AStruct && shape != null &&
+                ((AStruct) st).shape == shape) {
+            AStruct as = (AStruct) st;
+            if (hash != 0 && as.hash != 0 && hash != as.hash)
+                return false;
+            for (int i = 0, cnt = shape.names.length; i < cnt; ++i) {
+                String an = eqName(i);
+                if (an != as.eqName(i))
+                    return mergeEquals(st);
+                if (an != "") {
+                    Object a = get(i);
+                    Object b = st.get(i);
+                    if (a != b && (a == null || !a.equals(b)))
+                        return false;
+                }
+            }
+            return true;
+        }
+        return mergeEquals(st);
+    }
+
+    private boolean mergeEquals(Struct st) {
         int acnt = count(), bcnt = st.count(), i = 0, j = 0;
         while (i < acnt && j < bcnt) {
             String an, bn;
@@ -110,16 +157,6 @@ public abstract class AStruct implements Struct, Serializable {
 
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder().append('{');
-        for (int cnt = count(), i = 0; i < cnt; ++i) {
-            String name = eqName(i);
-            if (name != "") {
-                if (i != 0)
-                    sb.append(", ");
-                sb.append(name).append('=').append(Core.show(get(i)));
-            }
-        }
-        sb.append('}');
-        return sb.toString();
+        return Show.show(this);
     }
 }
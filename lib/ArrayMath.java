@@ -0,0 +1,407 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - bulk numeric kernels.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+/**
+ * Yeti core library - bulk numeric kernels.
+ *
+ * Lists and arrays backed by primitive arrays (PArray, PMList) are processed
+ * directly on the backing array, without boxing the elements into Num
+ * objects or calling a function per element. Other sequences are
+ * processed element-wise using the Num arithmetic, giving the same
+ * results as the equivalent folds.
+ *
+ * Sums are accumulated in the sequence order, so the results are the
+ * same as computed by fold (+) 0. Integer arrays are summed exactly,
+ * with overflowing sums continuing in the generic arithmetic.
+ * The ordered floating-point sums (sum, prefixSum) are therefore
+ * scalar loops, as the JIT doesn't vectorize ordered reductions.
+ *
+ * The double dot, axpy and scale kernels use SIMD instructions through
+ * VectorMath, when the jdk.incubator.vector module is present (Java 17
+ * or later, with java --add-modules jdk.incubator.vector). Otherwise the
+ * scalar Kernels implementation is used.
+ */
+public final class ArrayMath {
+    // double array kernels, overridden by VectorMath
+    static class Kernels {
+        double dot(double[] x, int xi, double[] y, int yi, int n) {
+            // independent accumulators break the add dependency chain
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int i = 0;
+            for (int e = n - 3; i < e; i += 4) {
+                s0 += x[xi + i] * y[yi + i];
+                s1 += x[xi + i + 1] * y[yi + i + 1];
+                s2 += x[xi + i + 2] * y[yi + i + 2];
+                s3 += x[xi + i + 3] * y[yi + i + 3];
+            }
+            for (; i < n; ++i)
+                s0 += x[xi + i] * y[yi + i];
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        // r = a * x + y
+        void axpy(double a, double[] x, double[] y, double[] r) {
+            for (int i = 0; i < r.length; ++i)
+                r[i] = a * x[i] + y[i];
+        }
+
+        // r = a * x
+        void scale(double a, double[] x, double[] r) {
+            for (int i = 0; i < r.length; ++i)
+                r[i] = a * x[i];
+        }
+    }
+
+    static final Kernels KERNELS = kernels();
+
+    private ArrayMath() {
+    }
+
+    private static Kernels kernels() {
+        try {
+            Kernels k = (Kernels)
+                Class.forName("yeti.lang.VectorMath").newInstance();
+            // fails here, when the vector module isn't available
+            k.dot(new double[1], 0, new double[1], 0, 1);
+            return k;
+        } catch (Throwable ex) {
+            return new Kernels();
+        }
+    }
+
+    /** Tells, whether the SIMD (Vector API) kernels are used. */
+    public static boolean vectorized() {
+        return KERNELS.getClass() != Kernels.class;
+    }
+
+    private static boolean isFloat(Object a) {
+        return a instanceof double[] || a instanceof float[];
+    }
+
+    private static boolean isIntegral(Object a) {
+        return a instanceof long[] || a instanceof int[] ||
+               a instanceof short[] || a instanceof byte[];
+    }
+
+    private static long longAt(Object a, int i) {
+        if (a instanceof long[])
+            return ((long[]) a)[i];
+        if (a instanceof int[])
+            return ((int[]) a)[i];
+        if (a instanceof short[])
+            return ((short[]) a)[i];
+        return ((byte[]) a)[i] & 0xff; // as ByteArray.first
+    }
+
+    // array views of primitive arrays are processed like the wrapped lists
+    private static AList flat(AList l) {
+        return l instanceof PMList ? ((PMList) l).list(((PMList) l).start) : l;
+    }
+
+    private static AIter numeric(AList l) {
+        if (l instanceof PArray) {
+            Object a = ((PArray) l).array;
+            if (!isFloat(a) && !isIntegral(a))
+                throw new IllegalArgumentException("Not a numeric array");
+        }
+        return l;
+    }
+
+    /**
+     * Returns the elements of the sequence as double array.
+     * The backing array itself is returned when a double array
+     * is wrapped whole, otherwise a new array is allocated.
+     */
+    static double[] doubles(AList l) {
+        l = flat(l);
+        if (l == null)
+            return new double[0];
+        if (!(l instanceof PArray)) {
+            double[] r = new double[(int) l.length()];
+            int n = 0;
+            for (AIter i = l; i != null; i = i.next())
+                r[n++] = ((Num) i.first()).doubleValue();
+            return r;
+        }
+        PArray p = (PArray) l;
+        Object a = numeric(l) == null ? null : p.array;
+        int s = p.start, n = p.length - s;
+        if (a instanceof double[]) {
+            double[] d = (double[]) a;
+            if (s == 0 && n == d.length)
+                return d;
+            double[] r = new double[n];
+            System.arraycopy(d, s, r, 0, n);
+            return r;
+        }
+        double[] r = new double[n];
+        if (a instanceof float[]) {
+            float[] f = (float[]) a;
+            for (int i = 0; i < n; ++i)
+                r[i] = f[s + i];
+        } else if (a instanceof int[]) {
+            int[] v = (int[]) a;
+            for (int i = 0; i < n; ++i)
+                r[i] = v[s + i];
+        } else {
+            for (int i = 0; i < n; ++i)
+                r[i] = longAt(a, s + i);
+        }
+        return r;
+    }
+
+    private static Num sumRest(Num r, PArray p, int i) {
+        Object a = p.array;
+        for (int e = p.length; i < e; ++i)
+            r = r.add(longAt(a, i));
+        return r;
+    }
+
+    /** Sum of the sequence, 0 for empty sequence. */
+    public static Num sum(AList l) {
+        l = flat(l);
+        if (!(l instanceof PArray)) {
+            Num r = new IntNum(0);
+            for (AIter i = l; i != null; i = i.next())
+                r = r.add((Num) i.first());
+            return r;
+        }
+        PArray p = (PArray) l;
+        Object a = numeric(l) == null ? null : p.array;
+        int i = p.start, e = p.length;
+        if (a instanceof double[]) {
+            double[] d = (double[]) a;
+            double s = 0;
+            for (; i < e; ++i)
+                s += d[i];
+            return new FloatNum(s);
+        }
+        if (a instanceof float[]) {
+            float[] f = (float[]) a;
+            double s = 0;
+            for (; i < e; ++i)
+                s += f[i];
+            return new FloatNum(s);
+        }
+        long s = 0;
+        if (a instanceof long[]) {
+            long[] v = (long[]) a;
+            for (; i < e; ++i) {
+                long x = v[i], r = s + x;
+                if (((s ^ r) & (x ^ r)) < 0)
+                    return sumRest(new IntNum(s), p, i);
+                s = r;
+            }
+        } else if (a instanceof int[]) {
+            int[] v = (int[]) a; // can't overflow with 2^31 elements
+            for (; i < e; ++i)
+                s += v[i];
+        } else {
+            for (; i < e; ++i)
+                s += longAt(a, i);
+        }
+        return new IntNum(s);
+    }
+
+    private static Num extreme(AList l, boolean max) {
+        l = flat(l);
+        if (l == null)
+            throw new EmptyArrayException((max ? "maximum" : "minimum")
+                                          + " of empty sequence");
+        if (!(l instanceof PArray)) {
+            Num m = (Num) l.first();
+            for (AIter i = l.next(); i != null; i = i.next()) {
+                Num x = (Num) i.first();
+                int c = m.compareTo(x);
+                if (max ? c <= 0 : c >= 0)
+                    m = x;
+            }
+            return m;
+        }
+        PArray p = (PArray) l;
+        Object a = numeric(l) == null ? null : p.array;
+        int i = p.start, e = p.length;
+        if (isFloat(a)) {
+            double[] d = a instanceof double[] ? (double[]) a : null;
+            float[] f = d == null ? (float[]) a : null;
+            double m = d != null ? d[i] : f[i];
+            while (++i < e) {
+                double x = d != null ? d[i] : f[i];
+                m = max ? (m > x ? m : x) : (m < x ? m : x);
+            }
+            return new FloatNum(m);
+        }
+        long m = longAt(a, i);
+        if (a instanceof long[]) {
+            long[] v = (long[]) a;
+            while (++i < e)
+                m = max ? Math.max(m, v[i]) : Math.min(m, v[i]);
+        } else {
+            while (++i < e)
+                m = max ? Math.max(m, longAt(a, i))
+                        : Math.min(m, longAt(a, i));
+        }
+        return new IntNum(m);
+    }
+
+    /** Largest element, like fold max (head l) (tail l). */
+    public static Num max(AList l) {
+        return extreme(l, true);
+    }
+
+    /** Smallest element, like fold min (head l) (tail l). */
+    public static Num min(AList l) {
+        return extreme(l, false);
+    }
+
+    private static int sameLength(AList a, AList b, String what) {
+        long n = a == null ? 0 : a.length();
+        if (n != (b == null ? 0 : b.length()))
+            throw new IllegalArgumentException(what
+                        + ": sequences have different length");
+        return (int) n;
+    }
+
+    /** Dot product (sum of pairwise products) of two sequences. */
+    public static Num dot(AList a, AList b) {
+        int n = sameLength(a, b, "dot");
+        a = flat(a);
+        b = flat(b);
+        if (n == 0)
+            return new IntNum(0);
+        if (a instanceof PArray && b instanceof PArray) {
+            PArray p = (PArray) a, q = (PArray) b;
+            numeric(a);
+            numeric(b);
+            if (p.array instanceof double[] && q.array instanceof double[])
+                return new FloatNum(KERNELS.dot((double[]) p.array, p.start,
+                                    (double[]) q.array, q.start, n));
+            if (isFloat(p.array) || isFloat(q.array))
+                return new FloatNum(KERNELS.dot(doubles(a), 0,
+                                                doubles(b), 0, n));
+            try {
+                long s = 0;
+                for (int i = 0; i < n; ++i)
+                    s = Math.addExact(s, Math.multiplyExact(
+                            longAt(p.array, p.start + i),
+                            longAt(q.array, q.start + i)));
+                return new IntNum(s);
+            } catch (ArithmeticException ex) {
+                // overflow, use the generic arithmetic
+            }
+        }
+        Num r = new IntNum(0);
+        for (AIter i = a, j = b; i != null; i = i.next(), j = j.next())
+            r = r.add(((Num) i.first()).mul((Num) j.first()));
+        return r;
+    }
+
+    /** Returns a * x + y computed elementwise as floating-point array. */
+    public static AList axpy(double a, AList x, AList y) {
+        int n = sameLength(x, y, "axpy");
+        double[] r = new double[n];
+        KERNELS.axpy(a, doubles(x), doubles(y), r);
+        return PArray.wrap(r);
+    }
+
+    /** Returns a * x computed elementwise as floating-point array. */
+    public static AList scale(double a, AList x) {
+        double[] u = doubles(x), r = new double[u.length];
+        KERNELS.scale(a, u, r);
+        return PArray.wrap(r);
+    }
+
+    /**
+     * Counts of the values falling into bins equal width intervals
+     * between lo and hi. The last interval includes hi, and values
+     * outside of [lo, hi] (or NaN) are not counted.
+     */
+    public static AList histogram(int bins, double lo, double hi, AList x) {
+        if (bins <= 0 || !(lo < hi))
+            throw new IllegalArgumentException("histogram: invalid bins "
+                        + bins + " for range " + lo + " .. " + hi);
+        double[] u = doubles(x);
+        double k = bins / (hi - lo);
+        int[] r = new int[bins];
+        int last = bins - 1;
+        for (int i = 0; i < u.length; ++i) {
+            double v = u[i];
+            if (v >= lo && v <= hi) {
+                int j = (int) ((v - lo) * k);
+                ++r[j < last ? j : last];
+            }
+        }
+        return PArray.wrap(r);
+    }
+
+    /**
+     * Running sums of the sequence: the i-th element of result is the sum
+     * of the first i + 1 elements. Floating-point sequences give double
+     * array, integer sequences long array when no overflow occurs.
+     */
+    public static AList prefixSum(AList l) {
+        l = flat(l);
+        if (l == null)
+            return null;
+        if (l instanceof PArray) {
+            PArray p = (PArray) l;
+            Object a = numeric(l) == null ? null : p.array;
+            int s = p.start, n = p.length - s;
+            if (isFloat(a)) {
+                double[] u = a instanceof double[]
+                                ? (double[]) a : doubles(l), r = new double[n];
+                if (u != a)
+                    s = 0;
+                double acc = 0;
+                for (int i = 0; i < n; ++i)
+                    r[i] = acc += u[s + i];
+                return PArray.wrap(r);
+            }
+            long[] r = new long[n];
+            long acc = 0;
+            int i = 0;
+            for (; i < n; ++i) {
+                long x = longAt(a, s + i), t = acc + x;
+                if (((acc ^ t) & (x ^ t)) < 0)
+                    break;
+                r[i] = acc = t;
+            }
+            if (i == n)
+                return PArray.wrap(r);
+        }
+        MList r = new MList();
+        Num acc = new IntNum(0);
+        for (AIter i = l; i != null; i = i.next())
+            r.add(acc = acc.add((Num) i.first()));
+        return r;
+    }
+}
@@ -51,6 +51,24 @@ class AtomSet extends Fun2 {
     }
 }
 
+class AtomUpdate extends Fun {
+    private final Atomic a;
+
+    AtomUpdate(Atomic a_) {
+        a = a_;
+    }
+
+    // retries the update function until the compareAndSet succeeds
+    public Object apply(Object f) {
+        Fun fun = (Fun) f;
+        Object old, value;
+        do {
+            value = fun.apply(old = a.get());
+        } while (!a.compareAndSet(old, value));
+        return value;
+    }
+}
+
 class Atomic extends java.util.concurrent.atomic.AtomicReference
         implements Struct {
     public Atomic(Object value) {
@@ -62,6 +80,8 @@ class Atomic extends java.util.concurrent.atomic.AtomicReference
             return get();
         if (field == "compareAndSet")
             return get(0);
+        if (field == "update")
+            return get(2);
         return get(1); // swap
     }
 
@@ -69,6 +89,7 @@ class Atomic extends java.util.concurrent.atomic.AtomicReference
         switch (field) {
             case 0:  return new AtomSet(this, true);  // compareAndSet
             case 1:  return new AtomSet(this, false); // swap
+            case 2:  return new AtomUpdate(this);
             default: return get();
         }
     }
@@ -79,24 +100,25 @@ class Atomic extends java.util.concurrent.atomic.AtomicReference
     }
 
     public int count() {
-        return 3;
+        return 4;
     }
 
     public String name(int field) {
         switch (field) {
             case 0: return "compareAndSet";
             case 1: return "swap";
+            case 2: return "update";
             default: return "value";
         }
     }
 
     public String eqName(int field) {
-        return field == 2 ? "value" : "";
+        return field == 3 ? "value" : "";
     }
 
     public Object ref(int field, int[] index, int at) {
         index[at + 1] = 0;
-        if (field == 2) { // value
+        if (field == 3) { // value
             index[at] = field;
             return this;
         }
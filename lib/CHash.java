@@ -33,6 +33,8 @@ package yeti.lang;
 import java.util.AbstractMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /** Yeti core library - IdentityHash. */
 public class CHash extends AbstractMap implements ByKey, Coll {
@@ -41,7 +43,7 @@ public class CHash extends AbstractMap implements ByKey, Coll {
     static final int WEAK = 3;
     private final int type;
     private final Fun cons;
-    private final Map impl;
+    final Map impl;
     private volatile Fun defaultFun;
 
     public CHash(int type_, Fun cons_) {
@@ -101,6 +103,19 @@ public class CHash extends AbstractMap implements ByKey, Coll {
         return impl.remove(key);
     }
 
+    // delegated to keep these atomic on concurrent hashes
+    public Object computeIfAbsent(Object key, Function f) {
+        return impl.computeIfAbsent(key, f);
+    }
+
+    public Object compute(Object key, BiFunction f) {
+        return impl.compute(key, f);
+    }
+
+    public Object merge(Object key, Object value, BiFunction f) {
+        return impl.merge(key, value, f);
+    }
+
     public int hashCode() {
         return impl.hashCode();
     }
@@ -0,0 +1,245 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - bounded cache hash.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+import java.util.AbstractMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Yeti core library - bounded cache hash.
+ *
+ * Least recently used entries are evicted, when the size limit is
+ * reached, and entries expire after the time-to-live (if given).
+ * Expired entries are removed on lookup, on size queries, and at most
+ * once per time-to-live on insertion. All operations are synchronized.
+ */
+public class CacheHash extends AbstractMap implements ByKey, Coll {
+    private final int maxSize;
+    private final long ttl;
+    private final Lru map = new Lru();
+    private Fun defaultFun;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long nextPurge;
+
+    private static final class Entry {
+        final Object value;
+        final long expires;
+
+        Entry(Object value_, long expires_) {
+            value = value_;
+            expires = expires_;
+        }
+    }
+
+    private final class Lru extends LinkedHashMap {
+        Lru() {
+            super(16, 0.75f, true);
+        }
+
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            if (maxSize <= 0 || size() <= maxSize)
+                return false;
+            ++evictions;
+            return true;
+        }
+    }
+
+    /**
+     * Creates cache hash. Zero or negative maxSize means no size limit,
+     * and zero or negative ttl (in nanoseconds) means no expiry.
+     */
+    public CacheHash(int maxSize_, long ttl_) {
+        maxSize = maxSize_;
+        ttl = ttl_;
+        nextPurge = System.nanoTime(); // nanoTime may be negative
+    }
+
+    // live entry for key, or null
+    private Entry entry(Object key) {
+        Entry e = (Entry) map.get(key);
+        if (e != null && ttl > 0 && e.expires - System.nanoTime() < 0) {
+            map.remove(key);
+            ++evictions;
+            e = null;
+        }
+        return e;
+    }
+
+    // removes all expired entries, at most once per ttl unless forced
+    private void purge(boolean force) {
+        if (ttl <= 0)
+            return;
+        long now = System.nanoTime();
+        if (!force && now - nextPurge < 0)
+            return;
+        for (Iterator i = map.values().iterator(); i.hasNext();)
+            if (((Entry) i.next()).expires - now < 0) {
+                i.remove();
+                ++evictions;
+            }
+        nextPurge = now + ttl;
+    }
+
+    private Entry lookup(Object key) {
+        Entry e = entry(key);
+        if (e != null)
+            ++hits;
+        else
+            ++misses;
+        return e;
+    }
+
+    public synchronized Object get(Object key) {
+        Entry e = lookup(key);
+        return e == null ? null : e.value;
+    }
+
+    public Object vget(Object key) {
+        Fun f;
+        synchronized (this) {
+            Entry e = lookup(key);
+            if (e != null)
+                return e.value;
+            f = defaultFun;
+        }
+        if (f != null)
+            return f.apply(key);
+        throw new NoSuchKeyException("Key not found (" + key + ")");
+    }
+
+    /**
+     * Returns cached value for the key, or applies f to the key and
+     * caches the result. The f is applied without holding the lock,
+     * so it can use the same cache recursively.
+     */
+    public Object memo(Object key, Fun f) {
+        synchronized (this) {
+            Entry e = lookup(key);
+            if (e != null)
+                return e.value;
+        }
+        Object v = f.apply(key);
+        put(key, v);
+        return v;
+    }
+
+    public synchronized Object put(Object key, Object value) {
+        purge(false);
+        Entry e = (Entry) map.put(key, new Entry(value,
+                                ttl > 0 ? System.nanoTime() + ttl : 0));
+        return e == null ? null : e.value;
+    }
+
+    public synchronized Object remove(Object key) {
+        Entry e = (Entry) map.remove(key);
+        return e == null ? null : e.value;
+    }
+
+    public synchronized boolean containsKey(Object key) {
+        return entry(key) != null;
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    public synchronized int size() {
+        purge(true);
+        return map.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        purge(true);
+        return map.isEmpty();
+    }
+
+    /** Snapshot of the live entries. */
+    public synchronized Set entrySet() {
+        Set r = new HashSet();
+        long now = System.nanoTime();
+        for (Iterator i = map.entrySet().iterator(); i.hasNext();) {
+            Map.Entry me = (Map.Entry) i.next();
+            Entry e = (Entry) me.getValue();
+            if (ttl <= 0 || e.expires - now >= 0)
+                r.add(new SimpleImmutableEntry(me.getKey(), e.value));
+        }
+        return r;
+    }
+
+    public synchronized void removeAll(AList keys) {
+        if (keys != null && !keys.isEmpty())
+            for (AIter i = keys; i != null; i = i.next())
+                map.remove(i.first());
+    }
+
+    public long length() {
+        return size();
+    }
+
+    public AList asList() {
+        return new MList(values().toArray());
+    }
+
+    public synchronized void setDefault(Fun fun) {
+        defaultFun = fun;
+    }
+
+    public synchronized Object copy() {
+        CacheHash result = new CacheHash(maxSize, ttl);
+        for (Iterator i = map.entrySet().iterator(); i.hasNext();) {
+            Map.Entry e = (Map.Entry) i.next();
+            result.map.put(e.getKey(), e.getValue());
+        }
+        result.defaultFun = defaultFun;
+        return result;
+    }
+
+    /** Number of lookups that found a live entry. */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /** Number of lookups that didn't find a live entry. */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /** Number of entries evicted by size limit or expiry. */
+    public synchronized long evictions() {
+        return evictions;
+    }
+}
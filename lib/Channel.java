@@ -0,0 +1,285 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - channel.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/** Yeti core library - lazy list of received channel values. */
+final class ChannelList extends LList {
+    private final Channel ch;
+    private AList rest;
+    private boolean forced;
+
+    ChannelList(Object first, Channel ch) {
+        super(first, null);
+        this.ch = ch;
+    }
+
+    public synchronized AList rest() {
+        if (!forced) {
+            rest = ch.list();
+            forced = true;
+        }
+        return rest;
+    }
+}
+
+/**
+ * Yeti core library - channel.
+ *
+ * Bounded channel uses array blocking queue and unbounded channel
+ * a lock-free linked queue. Blocked senders and receivers park their
+ * threads, waiting for signal from the other side, which allows
+ * selecting over several channels.
+ */
+public final class Channel {
+    private static final Object EMPTY = new Object();
+    private final Queue queue;
+    private final CopyOnWriteArrayList receivers = new CopyOnWriteArrayList();
+    private final CopyOnWriteArrayList senders;
+    private volatile boolean closed;
+
+    private static final class Waiter {
+        final Thread thread = Thread.currentThread();
+        volatile boolean signalled;
+
+        void signal() {
+            signalled = true;
+            LockSupport.unpark(thread);
+        }
+
+        void await() {
+            while (!signalled) {
+                LockSupport.park(this);
+                if (Thread.interrupted())
+                    Unsafe.unsafeThrow(new InterruptedException());
+            }
+        }
+    }
+
+    private static final class Case {
+        final Channel ch;
+        final Fun handler;
+
+        Case(Channel ch, Fun handler) {
+            this.ch = ch;
+            this.handler = handler;
+        }
+    }
+
+    /** Creates channel, unbounded when capacity is 0. */
+    public Channel(int capacity) {
+        if (capacity > 0) {
+            queue = new ArrayBlockingQueue(capacity);
+            senders = new CopyOnWriteArrayList();
+        } else {
+            queue = new ConcurrentLinkedQueue();
+            senders = null;
+        }
+    }
+
+    private static void signal(CopyOnWriteArrayList waiters) {
+        if (waiters != null && !waiters.isEmpty())
+            for (int i = waiters.size(); --i >= 0;)
+                try {
+                    ((Waiter) waiters.get(i)).signal();
+                } catch (IndexOutOfBoundsException ex) {
+                    // removed meanwhile, no need to signal
+                }
+    }
+
+    // Takes value or returns EMPTY.
+    private Object poll() {
+        Object v = queue.poll();
+        if (v == null)
+            return EMPTY;
+        signal(senders);
+        return v == EMPTY ? null : v;
+    }
+
+    /*
+     * Called after successful offer. When the channel was closed
+     * meanwhile, receivers may have already seen it closed and empty,
+     * so the value is taken back (unless received) and send fails.
+     */
+    private void sent(Object value) {
+        if (closed && queue.remove(value)) {
+            signal(senders);
+            throw new IllegalStateException("Send to closed channel");
+        }
+        signal(receivers);
+    }
+
+    /** Sends the value, blocking while the channel is full. */
+    public void send(Object value) {
+        if (closed)
+            throw new IllegalStateException("Send to closed channel");
+        if (value == null)
+            value = EMPTY; // the queues don't take nulls
+        Waiter w = null;
+        try {
+            while (!queue.offer(value)) {
+                if (closed)
+                    throw new IllegalStateException("Send to closed channel");
+                if (w == null) {
+                    // register and try again, to not miss the signal
+                    w = new Waiter();
+                    senders.add(w);
+                } else {
+                    w.await();
+                    w.signalled = false;
+                }
+            }
+        } finally {
+            if (w != null)
+                senders.remove(w);
+        }
+        sent(value);
+    }
+
+    /** Sends the value, if there is room in the channel. */
+    public boolean trySend(Object value) {
+        if (closed)
+            throw new IllegalStateException("Send to closed channel");
+        if (value == null)
+            value = EMPTY;
+        if (!queue.offer(value))
+            return false;
+        sent(value);
+        return true;
+    }
+
+    /**
+     * Closes the channel. Values already sent can still be received,
+     * but sending more throws IllegalStateException.
+     */
+    public void close() {
+        closed = true;
+        signal(receivers);
+        signal(senders);
+    }
+
+    /**
+     * Receives value from the first ready channel. Returns Some value,
+     * or None, when all the channels are closed and empty.
+     * Never blocks, when wait is false (returning None for no value).
+     */
+    private static Object receive(Channel[] channels, int[] index,
+                                  boolean wait) {
+        Waiter w = null;
+        try {
+            for (;;) {
+                boolean open = false;
+                for (int i = 0; i < channels.length; ++i) {
+                    Channel ch = channels[i];
+                    // read closed before poll, as values may be sent
+                    // just before closing
+                    open |= !ch.closed;
+                    Object v = ch.poll();
+                    if (v != EMPTY) {
+                        index[0] = i;
+                        return new Tag(v, "Some");
+                    }
+                }
+                if (!open || !wait)
+                    return new Tag(null, "None");
+                if (w == null) {
+                    // register and check again, to not miss the signal
+                    w = new Waiter();
+                    for (int i = 0; i < channels.length; ++i)
+                        channels[i].receivers.add(w);
+                } else {
+                    w.await();
+                    w.signalled = false;
+                }
+            }
+        } finally {
+            if (w != null)
+                for (int i = 0; i < channels.length; ++i)
+                    channels[i].receivers.remove(w);
+        }
+    }
+
+    /**
+     * Receives value, blocking until one is available.
+     * Returns None, when the channel is closed and empty.
+     */
+    public Tag receive() {
+        return (Tag) receive(new Channel[] { this }, new int[1], true);
+    }
+
+    /** Receives value, if available. */
+    public Tag tryReceive() {
+        return (Tag) receive(new Channel[] { this }, new int[1], false);
+    }
+
+    AList list() {
+        Tag v = receive();
+        return v.name == "None" ? null : new ChannelList(v.value, this);
+    }
+
+    /** Lazy list of received values, ending when the channel is closed. */
+    public static AList toList(Channel ch) {
+        return ch.list();
+    }
+
+    /** Creates select case for the channel and handler function. */
+    public static Object on(Channel ch, Fun handler) {
+        return new Case(ch, handler);
+    }
+
+    /**
+     * Waits for a value from any channel in the select cases, and applies
+     * the cases handler to it. Applies closed to (), when all channels
+     * are closed and empty.
+     */
+    public static Object select(AList cases, Fun closed) {
+        int n = 0;
+        for (AIter i = cases; i != null; i = i.next())
+            ++n;
+        Channel[] channels = new Channel[n];
+        Fun[] handlers = new Fun[n];
+        n = 0;
+        for (AIter i = cases; i != null; i = i.next(), ++n) {
+            Case c = (Case) i.first();
+            channels[n] = c.ch;
+            handlers[n] = c.handler;
+        }
+        int[] index = new int[1];
+        Tag v = (Tag) receive(channels, index, true);
+        return v.name == "None" ? closed.apply(null)
+                                : handlers[index[0]].apply(v.value);
+    }
+}
@@ -35,44 +35,87 @@ import java.io.OutputStream;
 
 /** Yeti core library - Concat list. */
 final class ConcatList extends LList {
-    private boolean mappedRest;
-    private AIter src;
-    private AList tail;
+    private AIter src; // current list, null when the rest is mapped
+    private AList rest;
+    // Lists following the src, as a queue. Left nested (a ++ b) ++ c
+    // appends c to the queue of (a ++ b) instead of wrapping it, so
+    // walking the result doesn't go through a chain of concat lists.
+    private Parts front; // in order
+    private Parts back;  // reversed
+
+    private static final class Parts {
+        final AList list;
+        final Parts next;
+
+        Parts(AList list, Parts next) {
+            this.list = list;
+            this.next = next;
+        }
+    }
 
     public ConcatList(AIter src, AList tail) {
         super(src.first(), null);
+        if (src instanceof ConcatList) {
+            ConcatList c = (ConcatList) src;
+            synchronized (c) {
+                if (c.src != null) {
+                    this.src = c.src.dup();
+                    front = c.front;
+                    back = new Parts(tail, c.back);
+                    return;
+                }
+            }
+        }
         this.src = src;
-        this.tail = tail;
+        back = new Parts(tail, null);
     }
 
-    public synchronized AIter next() {
-        if (!mappedRest) {
-            AIter i = src.next();
-            if (i != null)
-                tail = new ConcatList(i, tail);
-            src = null;
-            mappedRest = true;
-        }
-        return tail;
+    private ConcatList(AIter src, Parts front, Parts back) {
+        super(src.first(), null);
+        this.src = src;
+        this.front = front;
+        this.back = back;
     }
 
     public synchronized AList rest() {
-        if (!mappedRest) {
+        if (src != null) {
             AIter i = src.next();
-            if (i != null)
-                tail = new ConcatList(i, tail);
+            Parts f = front, b = back;
             src = null;
-            mappedRest = true;
+            front = back = null;
+            if (i != null) {
+                rest = new ConcatList(i, f, b);
+            } else {
+                if (f == null) {
+                    for (; b != null; b = b.next)
+                        f = new Parts(b.list, f);
+                }
+                // the last list is given directly as the tail
+                rest = f.next == null && b == null ? f.list
+                        : new ConcatList(f.list, f.next, b);
+            }
         }
-        return tail;
+        return rest;
     }
 
     synchronized AIter write(OutputStream out) throws IOException {
-        if (mappedRest)
+        if (src == null)
             return super.write(out);
         AIter i = src.dup();
         while (i != null)
             i = i.write(out);
-        return tail.write(out);
+        for (Parts p = front; p != null; p = p.next)
+            for (i = p.list; i != null;)
+                i = i.write(out);
+        int n = 0;
+        for (Parts p = back; p != null; p = p.next)
+            ++n;
+        AList[] lists = new AList[n];
+        for (Parts p = back; p != null; p = p.next)
+            lists[--n] = p.list;
+        for (; n < lists.length; ++n)
+            for (i = lists[n]; i != null;)
+                i = i.write(out);
+        return null;
     }
 }
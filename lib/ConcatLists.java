@@ -83,8 +83,18 @@ final class ConcatLists extends LList {
             src = src.next();
             // If found make concat-list mirroring it,
             // with tail src to use when it's finished.
-            if (h != null && !h.isEmpty())
-                return src == null ? h : new ConcatLists(h, src);
+            if (h != null && !h.isEmpty()) {
+                if (src == null)
+                    return h;
+                // concat [a, b] is a ++ b, which appends b to the queue
+                // of a, when a is an unwalked concat list
+                if (src.dup().next() == null) {
+                    AList t = (AList) src.first();
+                    if (t != null && !t.isEmpty())
+                        return new ConcatList(h, t);
+                }
+                return new ConcatLists(h, src);
+            }
         }
         return null; // no, all empty
     }
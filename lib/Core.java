@@ -56,8 +56,85 @@ public final class Core {
         return result.toString();
     }
 
+    static final double[] DEC_POW = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6,
+        1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18,
+        1e19, 1e20, 1e21, 1e22 };
+
     public static Num parseNum(String str) {
-        String s = str.trim();
+        return parseNum(str, 0, str.length());
+    }
+
+    /**
+     * Parses number from the given range of the char sequence.
+     * Plain decimal numbers are parsed without creating intermediate
+     * strings. Floating-point values are computed directly, when both
+     * the digits and power of ten are exact doubles (so the single
+     * rounding is correct), other values are given to the general parser.
+     */
+    public static Num parseNum(CharSequence s, int start, int end) {
+        while (start < end && s.charAt(start) <= ' ')
+            ++start;
+        while (end > start && s.charAt(end - 1) <= ' ')
+            --end;
+        int i = start, dot = -1, exp = -1;
+        boolean neg = i < end && s.charAt(i) == '-';
+        if (neg)
+            ++i;
+        int first = i;
+        for (char c; i < end; ++i)
+            if ((c = s.charAt(i)) == '.' && dot < 0 && exp < 0)
+                dot = i;
+            else if ((c == 'e' || c == 'E') && exp < 0 && i > first)
+                exp = i;
+            else if ((c < '0' || c > '9') && (i != exp + 1 || exp < 0
+                        || c != '-' && c != '+' || i == end - 1))
+                return parseSlow(s.subSequence(start, end).toString());
+        int mantEnd = exp < 0 ? end : exp, last = mantEnd;
+        if (dot == first || mantEnd == first)
+            return parseSlow(s.subSequence(start, end).toString());
+        if (exp < 0 && dot >= 0) {
+            while (--last > dot && s.charAt(last) == '0');
+            if (last++ == dot)
+                mantEnd = dot; // only zeros in the fraction
+        }
+        long n = 0;
+        int digits = 0, fraction = 0;
+        for (i = first; i < mantEnd; ++i)
+            if (i == dot)
+                fraction = last - i - 1;
+            else if (i < last && (digits != 0 || s.charAt(i) != '0')) {
+                if (++digits > 18)
+                    return parseSlow(s.subSequence(start, end).toString());
+                n = n * 10 + (s.charAt(i) - '0');
+            }
+        if (exp < 0 && (dot < 0 || mantEnd == dot)) {
+            if (mantEnd - first > 18)
+                return parseSlow(s.subSequence(start, end).toString());
+            return new IntNum(neg ? -n : n);
+        }
+        if (exp < 0 && last - start <= 12 && fraction < DEC_SHIFT.length
+                && n <= (neg ? 0x80000000L : Integer.MAX_VALUE))
+            return new RatNum((int) (neg ? -n : n), DEC_SHIFT[fraction]);
+        if (exp >= 0 && exp + 1 < end) {
+            if (end - exp > 6)
+                return parseSlow(s.subSequence(start, end).toString());
+            i = exp + 1;
+            boolean negExp = s.charAt(i) == '-';
+            if (negExp || s.charAt(i) == '+')
+                ++i;
+            int e = 0;
+            while (i < end)
+                e = e * 10 + (s.charAt(i++) - '0');
+            fraction -= negExp ? -e : e;
+        }
+        if (n >= 1L << 53 || fraction > 22 || fraction < -22)
+            return parseSlow(s.subSequence(start, end).toString());
+        double v = fraction >= 0 ? n / DEC_POW[fraction]
+                                 : n * DEC_POW[-fraction];
+        return new FloatNum(neg ? -v : v);
+    }
+
+    private static Num parseSlow(String s) {
         int l;
         if ((l = s.length()) == 0)
             throw new IllegalArgumentException("Number expected");
@@ -91,7 +168,7 @@ public final class Core {
                     s = s.substring(0, l);
                     break;
                 }
-                if (l <= 11) {
+                if (l <= 11 && l - dot < DEC_SHIFT.length) {
                     long n = Long.parseLong(s.substring(0, dot).concat(
                                             s.substring(dot + 1, l + 1)));
                     if (n >= Integer.MIN_VALUE && n <= Integer.MAX_VALUE)
@@ -122,39 +199,19 @@ public final class Core {
         return new String(res);
     }
 
+    /** Appends number without creating intermediate string for integers. */
+    public static StringBuilder appendNum(StringBuilder to, Object num) {
+        return num instanceof IntNum ? to.append(((IntNum) num).longValue())
+                                     : to.append(num);
+    }
+
     public static String show(Object o) {
-        StringBuilder r;
         if (o == null)
             return "[]";
-        if (o instanceof String) {
-            // TODO escaping
-            char[] s = ((String) o).toCharArray();
-            r = new StringBuilder().append('"');
-            int p = 0, i = 0, cnt = s.length;
-            for (String c; i < cnt; ++i) {
-                if (s[i] == '\\') {
-                    c = "\\\\";
-                } else if (s[i] == '"') {
-                    c = "\\\"";
-                } else if (s[i] == '\n') {
-                    c = "\\n";
-                } else if (s[i] == '\r') {
-                    c = "\\r";
-                } else if (s[i] == '\t') {
-                    c = "\\t";
-                } else if (s[i] >= '\u0000' && s[i] < ' ') {
-                    c = "000".concat(Integer.toHexString(s[i]));
-                    c = "\\u".concat(c.substring(c.length() - 4));
-                } else {
-                    continue;
-                }
-                r.append(s, p, i - p).append(c);
-                p = i + 1;
-            }
-            return r.append(s, p, i - p).append('"').toString();
-        }
+        if (o instanceof String)
+            return Show.show(o);
         if (o.getClass().isArray()) {
-            r = new StringBuilder().append('[');
+            StringBuilder r = new StringBuilder().append('[');
             for (int i = 0, len = Array.getLength(o); i < len; ++i) {
                 if (i != 0)
                     r.append(',');
@@ -220,6 +277,19 @@ public final class Core {
         }
     }
 
+    /**
+     * Set to non-null value on threads (like compile server), where
+     * the program main shouldn't exit the JVM on threadExit.
+     */
+    public static final ThreadLocal NO_EXIT = new ThreadLocal();
+
+    // called by generated program main on ExitError
+    public static void exitMain(ExitError ex) {
+        if (NO_EXIT.get() != null)
+            throw ex;
+        System.exit(ex.getExitCode());
+    }
+
     public static Object badMatch(Object match) {
         throw new BadMatch(match, null, 0, 0);
     }
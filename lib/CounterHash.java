@@ -0,0 +1,175 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - concurrent counter hash.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+import java.util.AbstractMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Yeti core library - concurrent counter hash.
+ *
+ * Keeps a LongAdder per key, so concurrent increments of the same key
+ * don't contend on single memory location. Values are integers and
+ * missing keys are read as 0, unless a default function is set.
+ */
+public class CounterHash extends AbstractMap implements ByKey, Coll {
+    private static final IntNum ZERO = new IntNum(0);
+    private final ConcurrentHashMap impl = new ConcurrentHashMap();
+    private volatile Fun defaultFun;
+
+    private LongAdder adder(Object key) {
+        LongAdder a = (LongAdder) impl.get(key);
+        if (a == null) {
+            a = new LongAdder();
+            Object old = impl.putIfAbsent(key, a);
+            if (old != null)
+                a = (LongAdder) old;
+        }
+        return a;
+    }
+
+    /** Adds n to the key counter. */
+    public void add(Object key, long n) {
+        adder(key).add(n);
+    }
+
+    /**
+     * Adds n to the key counter.
+     * Throws IllegalArgumentException, when n is not a long integer.
+     */
+    public void add(Object key, Num n) {
+        long v = count(n); // before creating the counter
+        adder(key).add(v);
+    }
+
+    // counters are longs, so don't drop fractions or wrap silently
+    private static long count(Object value) {
+        Num n = (Num) value;
+        long v = n.longValue();
+        if (!(n instanceof IntNum) && (n.compareTo(new IntNum(v)) != 0 ||
+                n instanceof FloatNum && n.doubleValue() >= 0x1p63))
+            throw new IllegalArgumentException(
+                        "Not an integer counter value: " + value);
+        return v;
+    }
+
+    public Object get(Object key) {
+        LongAdder a = (LongAdder) impl.get(key);
+        return a == null ? null : new IntNum(a.sum());
+    }
+
+    public Object vget(Object key) {
+        LongAdder a = (LongAdder) impl.get(key);
+        if (a != null)
+            return new IntNum(a.sum());
+        Fun f = defaultFun;
+        return f != null ? f.apply(key) : ZERO;
+    }
+
+    public Object put(Object key, Object value) {
+        LongAdder a = new LongAdder();
+        a.add(count(value));
+        Object old = impl.put(key, a);
+        return old == null ? null : new IntNum(((LongAdder) old).sum());
+    }
+
+    public Object remove(Object key) {
+        Object old = impl.remove(key);
+        return old == null ? null : new IntNum(((LongAdder) old).sum());
+    }
+
+    public boolean containsKey(Object key) {
+        return impl.containsKey(key);
+    }
+
+    public void clear() {
+        impl.clear();
+    }
+
+    public int size() {
+        return impl.size();
+    }
+
+    public boolean isEmpty() {
+        return impl.isEmpty();
+    }
+
+    public Set keySet() {
+        return impl.keySet();
+    }
+
+    /** Snapshot of the current counter values. */
+    public Set entrySet() {
+        Set r = new HashSet();
+        for (Iterator i = impl.entrySet().iterator(); i.hasNext();) {
+            Map.Entry e = (Map.Entry) i.next();
+            r.add(new SimpleImmutableEntry(e.getKey(),
+                    new IntNum(((LongAdder) e.getValue()).sum())));
+        }
+        return r;
+    }
+
+    public void removeAll(AList keys) {
+        if (keys != null && !keys.isEmpty())
+            for (AIter i = keys; i != null; i = i.next())
+                impl.remove(i.first());
+    }
+
+    public long length() {
+        return impl.size();
+    }
+
+    public AList asList() {
+        Object[] a = impl.values().toArray();
+        for (int i = 0; i < a.length; ++i)
+            a[i] = new IntNum(((LongAdder) a[i]).sum());
+        return new MList(a);
+    }
+
+    public void setDefault(Fun fun) {
+        defaultFun = fun;
+    }
+
+    public Object copy() {
+        CounterHash result = new CounterHash();
+        for (Iterator i = impl.entrySet().iterator(); i.hasNext();) {
+            Map.Entry e = (Map.Entry) i.next();
+            result.add(e.getKey(), ((LongAdder) e.getValue()).sum());
+        }
+        result.defaultFun = defaultFun;
+        return result;
+    }
+}
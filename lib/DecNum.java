@@ -0,0 +1,493 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - decimal numbers.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Yeti core library - exact decimal numbers.
+ *
+ * The value is unscaled / 10^scale. Decimals with at most 18 fractional
+ * digits and unscaled value fitting into long are kept in the long form,
+ * and only overflowing results are computed using BigDecimal. Addition,
+ * subtraction, multiplication and comparison are always exact. Division
+ * is exact when the quotient has finite decimal expansion, otherwise
+ * it falls back to floating-point, like RatNum does on overflow.
+ * Rationals are converted into decimals when their denominator divides
+ * a power of ten, and integers are decimals with zero scale.
+ */
+public final class DecNum extends Num {
+    private static final int MAX_SCALE = 18;
+    private static final long[] POW = { 1L, 10L, 100L, 1000L, 10000L,
+        100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+        10000000000L, 100000000000L, 1000000000000L, 10000000000000L,
+        100000000000000L, 1000000000000000L, 10000000000000000L,
+        100000000000000000L, 1000000000000000000L };
+
+    private final long unscaled;
+    private final int scale;
+    private final BigDecimal big; // null in the long form
+
+    public DecNum(long unscaled, int scale) {
+        if (scale < 0 || scale > MAX_SCALE)
+            throw new IllegalArgumentException("Decimal scale " + scale);
+        this.unscaled = unscaled;
+        this.scale = scale;
+        this.big = null;
+    }
+
+    private DecNum(BigDecimal big) {
+        this.unscaled = 0;
+        this.scale = big.scale();
+        this.big = big;
+    }
+
+    /** Creates decimal of the BigDecimal, using long form when it fits. */
+    public static DecNum valueOf(BigDecimal v) {
+        if (v.scale() < 0) {
+            v = v.setScale(0);
+        } else if (v.scale() > MAX_SCALE) {
+            BigDecimal t = v.stripTrailingZeros();
+            if (t.scale() <= MAX_SCALE)
+                v = t.scale() < 0 ? t.setScale(0) : t;
+        }
+        BigInteger u = v.unscaledValue();
+        return v.scale() <= MAX_SCALE && u.bitLength() < 64
+            ? new DecNum(u.longValue(), v.scale()) : new DecNum(v);
+    }
+
+    /** Parses exact decimal number, like 12.50 or -1.5e-3. */
+    public static Num parse(String str) {
+        String s = str.trim();
+        int i = 0, l = s.length(), dot = -1, digits = 0;
+        boolean neg = l > 1 && s.charAt(0) == '-';
+        long u = 0;
+        for (i = neg ? 1 : 0; i < l; ++i) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9' && ++digits <= 18)
+                u = u * 10 + (c - '0');
+            else if (c != '.' || dot >= 0)
+                break;
+            else
+                dot = i;
+        }
+        if (i < l || digits == 0 || digits > 18)
+            return valueOf(new BigDecimal(s));
+        return new DecNum(neg ? -u : u, dot < 0 ? 0 : l - dot - 1);
+    }
+
+    /**
+     * Rounds the number to the given count of fractional digits,
+     * with ties rounded away from zero.
+     */
+    public static Num round(Num num, int places) {
+        if (num instanceof DecNum) {
+            DecNum d = (DecNum) num;
+            if (d.big == null && places >= 0 && places <= d.scale) {
+                long p = POW[d.scale - places], q = d.unscaled / p,
+                     r = d.unscaled % p;
+                if ((r < 0 ? -r : r) * 2 >= p)
+                    q += r < 0 ? -1 : 1;
+                return new DecNum(q, places);
+            }
+        } else if (num instanceof RatNum) {
+            RatNum r = (RatNum) num;
+            return valueOf(BigDecimal.valueOf(r.numerator()).divide(
+                BigDecimal.valueOf(r.denominator()), places,
+                RoundingMode.HALF_UP));
+        }
+        return valueOf(num.toBigDecimal().setScale(places,
+                                                   RoundingMode.HALF_UP));
+    }
+
+    private static long gcd(long a, long b) {
+        long c;
+        while (b != 0) {
+            b = a % (c = b);
+            a = c;
+        }
+        return a < 0 ? -a : a;
+    }
+
+    // converts exact numbers into decimal, returns null for others
+    private static DecNum dec(Num num) {
+        if (num instanceof DecNum)
+            return (DecNum) num;
+        if (num instanceof IntNum)
+            return new DecNum(num.longValue(), 0);
+        if (num instanceof BigNum)
+            return valueOf(new BigDecimal(num.toBigInteger()));
+        if (!(num instanceof RatNum))
+            return null;
+        RatNum r = (RatNum) num;
+        long n = r.numerator(), d = r.denominator(), g = gcd(n, d);
+        n /= g;
+        d /= g;
+        for (int i = 0; i <= 9; ++i) // |n * 10^9| fits into long
+            if (POW[i] % d == 0)
+                return new DecNum(n * (POW[i] / d), i);
+        return null;
+    }
+
+    // a * 10^n, or Long.MIN_VALUE on overflow
+    private static long scaleUp(long a, int n) {
+        long max = Long.MAX_VALUE / POW[n];
+        return a <= max && a >= -max ? a * POW[n] : Long.MIN_VALUE;
+    }
+
+    private static DecNum add(long a, int as, long b, int bs) {
+        long x = as < bs ? scaleUp(a, bs - as) : a,
+             y = as > bs ? scaleUp(b, as - bs) : b, r = x + y;
+        if (x == Long.MIN_VALUE || y == Long.MIN_VALUE
+                || ((x ^ r) & (y ^ r)) < 0)
+            return valueOf(BigDecimal.valueOf(a, as)
+                            .add(BigDecimal.valueOf(b, bs)));
+        return new DecNum(r, as > bs ? as : bs);
+    }
+
+    private static DecNum sub(long a, int as, long b, int bs) {
+        return b != Long.MIN_VALUE ? add(a, as, -b, bs)
+            : valueOf(BigDecimal.valueOf(a, as)
+                        .subtract(BigDecimal.valueOf(b, bs)));
+    }
+
+    private static DecNum mul(long a, int as, long b, int bs) {
+        long r = a * b;
+        if (as + bs <= MAX_SCALE && (a == (int) a && b == (int) b ||
+                a == 0 || r / a == b && (a != -1 || b != Long.MIN_VALUE)))
+            return new DecNum(r, as + bs);
+        return valueOf(BigDecimal.valueOf(a, as)
+                        .multiply(BigDecimal.valueOf(b, bs)));
+    }
+
+    private static int cmp(long a, int as, long b, int bs) {
+        long x = as < bs ? scaleUp(a, bs - as) : a,
+             y = as > bs ? scaleUp(b, as - bs) : b;
+        if (x == Long.MIN_VALUE || y == Long.MIN_VALUE)
+            return BigDecimal.valueOf(a, as).compareTo(
+                        BigDecimal.valueOf(b, bs));
+        return x < y ? -1 : x > y ? 1 : 0;
+    }
+
+    private static Num divide(DecNum a, DecNum b) {
+        if (b.signum() == 0)
+            throw new IllegalArgumentException("division by zero");
+        if (a.big == null && b.big == null && b.unscaled != Long.MIN_VALUE) {
+            // quotient is finite decimal, when the divisor has only
+            // factors 2 and 5 after cancelling the common factors
+            long q = (b.unscaled < 0 ? -b.unscaled : b.unscaled)
+                        / gcd(a.unscaled, b.unscaled);
+            while ((q & 1) == 0)
+                q >>= 1;
+            while (q % 5 == 0)
+                q /= 5;
+            if (q != 1)
+                return new FloatNum(a.doubleValue() / b.doubleValue());
+        }
+        try {
+            return valueOf(a.toBigDecimal().divide(b.toBigDecimal()));
+        } catch (ArithmeticException ex) {
+            return new FloatNum(a.doubleValue() / b.doubleValue());
+        }
+    }
+
+    private DecNum add(DecNum num) {
+        return big == null && num.big == null
+            ? add(unscaled, scale, num.unscaled, num.scale)
+            : valueOf(toBigDecimal().add(num.toBigDecimal()));
+    }
+
+    private DecNum sub(DecNum num) {
+        return big == null && num.big == null
+            ? sub(unscaled, scale, num.unscaled, num.scale)
+            : valueOf(toBigDecimal().subtract(num.toBigDecimal()));
+    }
+
+    private DecNum mul(DecNum num) {
+        return big == null && num.big == null
+            ? mul(unscaled, scale, num.unscaled, num.scale)
+            : valueOf(toBigDecimal().multiply(num.toBigDecimal()));
+    }
+
+    private int cmp(DecNum num) {
+        return big == null && num.big == null
+            ? cmp(unscaled, scale, num.unscaled, num.scale)
+            : toBigDecimal().compareTo(num.toBigDecimal());
+    }
+
+    public int signum() {
+        return big == null ? Long.signum(unscaled) : big.signum();
+    }
+
+    public int scale() {
+        return scale;
+    }
+
+    public Num add(Num num) {
+        if (num instanceof IntNum)
+            return add(num.longValue());
+        DecNum d = dec(num);
+        return d == null ? new FloatNum(doubleValue() + num.doubleValue())
+                         : add(d);
+    }
+
+    public Num add(long num) {
+        return big == null ? add(unscaled, scale, num, 0)
+                           : valueOf(big.add(BigDecimal.valueOf(num)));
+    }
+
+    public Num add(RatNum num) {
+        return add((Num) num);
+    }
+
+    public Num add(BigInteger num) {
+        return valueOf(toBigDecimal().add(new BigDecimal(num)));
+    }
+
+    public Num mul(Num num) {
+        if (num instanceof IntNum)
+            return mul(num.longValue());
+        DecNum d = dec(num);
+        return d == null ? new FloatNum(doubleValue() * num.doubleValue())
+                         : mul(d);
+    }
+
+    public Num mul(long num) {
+        return big == null ? mul(unscaled, scale, num, 0)
+                           : valueOf(big.multiply(BigDecimal.valueOf(num)));
+    }
+
+    public Num mul(RatNum num) {
+        return mul((Num) num);
+    }
+
+    public Num mul(BigInteger num) {
+        return valueOf(toBigDecimal().multiply(new BigDecimal(num)));
+    }
+
+    public Num div(Num num) {
+        DecNum d = dec(num);
+        return d == null ? new FloatNum(doubleValue() / num.doubleValue())
+                         : divide(this, d);
+    }
+
+    public Num div(long num) {
+        return divide(this, new DecNum(num, 0));
+    }
+
+    public Num divFrom(long num) {
+        return divide(new DecNum(num, 0), this);
+    }
+
+    public Num divFrom(RatNum num) {
+        DecNum d = dec(num);
+        return d == null ? new FloatNum(num.doubleValue() / doubleValue())
+                         : divide(d, this);
+    }
+
+    public Num intDiv(Num num) {
+        return num.intDivFrom(longValue());
+    }
+
+    public Num intDiv(int num) {
+        return new IntNum(longValue() / num);
+    }
+
+    public Num intDivFrom(long num) {
+        return new IntNum(num / longValue());
+    }
+
+    public Num intDivFrom(BigInteger num) {
+        return new BigNum(num.divide(BigInteger.valueOf(longValue())));
+    }
+
+    public Num rem(Num num) {
+        return num.remFrom(longValue());
+    }
+
+    public Num rem(int num) {
+        return new IntNum(longValue() % num);
+    }
+
+    public Num remFrom(long num) {
+        return new IntNum(num % longValue());
+    }
+
+    public Num remFrom(BigInteger num) {
+        return new BigNum(num.remainder(BigInteger.valueOf(longValue())));
+    }
+
+    public Num sub(Num num) {
+        if (num instanceof IntNum)
+            return sub(num.longValue());
+        DecNum d = dec(num);
+        return d == null ? new FloatNum(doubleValue() - num.doubleValue())
+                         : sub(d);
+    }
+
+    public Num sub(long num) {
+        return big == null ? sub(unscaled, scale, num, 0)
+                           : valueOf(big.subtract(BigDecimal.valueOf(num)));
+    }
+
+    public Num subFrom(long num) {
+        return big == null ? sub(num, 0, unscaled, scale)
+                           : valueOf(BigDecimal.valueOf(num).subtract(big));
+    }
+
+    public Num subFrom(RatNum num) {
+        DecNum d = dec(num);
+        return d == null ? new FloatNum(num.doubleValue() - doubleValue())
+                         : d.sub(this);
+    }
+
+    public Num subFrom(BigInteger num) {
+        return valueOf(new BigDecimal(num).subtract(toBigDecimal()));
+    }
+
+    public Num and(Num num) {
+        return new IntNum(num.longValue() & longValue());
+    }
+
+    public Num and(BigInteger num) {
+        return new IntNum(num.longValue() & longValue());
+    }
+
+    public Num or(Num num) {
+        return num.or(longValue());
+    }
+
+    public Num or(long num) {
+        return new IntNum(num | longValue());
+    }
+
+    public Num xor(Num num) {
+        return num.xor(longValue());
+    }
+
+    public Num xor(long num) {
+        return new IntNum(num ^ longValue());
+    }
+
+    public int compareTo(Object o) {
+        Num num = (Num) o;
+        if (num instanceof IntNum)
+            return -rCompare(num.longValue());
+        DecNum d = dec(num);
+        if (d != null)
+            return cmp(d);
+        double a = doubleValue(), b = num.doubleValue();
+        return a < b ? -1 : a > b ? 1 : 0;
+    }
+
+    public int rCompare(long num) {
+        return big == null ? cmp(num, 0, unscaled, scale)
+                           : BigDecimal.valueOf(num).compareTo(big);
+    }
+
+    public int rCompare(RatNum num) {
+        return -compareTo(num);
+    }
+
+    public int rCompare(BigInteger num) {
+        return new BigDecimal(num).compareTo(toBigDecimal());
+    }
+
+    public int intValue() {
+        return (int) longValue();
+    }
+
+    public long longValue() {
+        return big == null ? unscaled / POW[scale] : big.longValue();
+    }
+
+    public float floatValue() {
+        return (float) doubleValue();
+    }
+
+    public double doubleValue() {
+        // both operands are exact, so the division is correctly rounded
+        if (big == null && unscaled < 1L << 53 && unscaled > -1L << 53)
+            return unscaled / Core.DEC_POW[scale];
+        return toBigDecimal().doubleValue();
+    }
+
+    public BigDecimal toBigDecimal() {
+        return big == null ? BigDecimal.valueOf(unscaled, scale) : big;
+    }
+
+    public String toString() {
+        if (big != null)
+            return big.toPlainString();
+        if (scale == 0)
+            return Long.toString(unscaled);
+        if (unscaled == Long.MIN_VALUE)
+            return toBigDecimal().toPlainString();
+        char[] buf = new char[22];
+        int i = buf.length;
+        long u = unscaled < 0 ? -unscaled : unscaled;
+        for (int n = 0; u != 0 || n <= scale; ++n, u /= 10) {
+            if (n == scale)
+                buf[--i] = '.';
+            buf[--i] = (char) ('0' + u % 10);
+        }
+        if (unscaled < 0)
+            buf[--i] = '-';
+        return new String(buf, i, buf.length - i);
+    }
+
+    public int hashCode() {
+        // same as IntNum and FloatNum, as equal numbers must have same hash
+        long x;
+        if (big == null && unscaled % POW[scale] == 0) {
+            x = unscaled / POW[scale];
+            return (int) (x ^ (x >>> 32));
+        }
+        if (big != null && (big.signum() == 0 ||
+                            big.stripTrailingZeros().scale() <= 0)) {
+            // integer, BigNum hash is used over long range
+            BigInteger i = big.toBigInteger();
+            if (i.bitLength() > 63)
+                return i.hashCode();
+            x = i.longValue();
+            return (int) (x ^ (x >>> 32));
+        }
+        double v = doubleValue();
+        x = (long) v;
+        long d = Double.doubleToLongBits(v - x);
+        if (d != 0x8000000000000000L) {
+            x ^= d;
+        }
+        return (int) (x ^ (x >>> 32));
+    }
+}
@@ -226,7 +226,80 @@ public final class FloatNum extends Num {
     }
 
     public String toString() {
-        return Double.toString(v);
+        return toString(v);
+    }
+
+    /**
+     * Formats the double in the Double.toString layout, using the shortest
+     * decimal that is parsed back into the same value. Decimals with at
+     * most 15 significant digits are found by scaling with an exact power
+     * of ten, where the single rounding gives the nearest candidate, and
+     * stripping its trailing zeros. Other values (and zeros, infinities
+     * and NaN) are left to Double.toString.
+     */
+    public static String toString(double v) {
+        double a = v < 0 ? -v : v;
+        if (!(a > 0 && a < Double.POSITIVE_INFINITY))
+            return Double.toString(v);
+        // 15 digits, or less for small values (10^k must be exact).
+        // e is decimal exponent of a, or one less from rounding down.
+        int e = Math.getExponent(a) * 1233 >> 12, k = 14 - e, i = 0, p;
+        if (k > 22)
+            k = 22;
+        else if (k < -22)
+            return Double.toString(v);
+        long m;
+        while ((m = (long) ((k >= 0 ? a * Core.DEC_POW[k]
+                                    : a / Core.DEC_POW[-k]) + 0.5))
+                >= 1000000000000000L) // log10 was too low
+            if (--k < -22)
+                return Double.toString(v);
+        if ((k >= 0 ? m / Core.DEC_POW[k] : m * Core.DEC_POW[-k]) != a)
+            return Double.toString(v);
+        // no shorter decimal is lost, as the 15-digit candidate is unique
+        for (; m % 10 == 0; --k)
+            m /= 10;
+        // digits are put to the end of buffer and the result to start
+        char[] buf = new char[40];
+        int n = 0, d = buf.length;
+        for (; m != 0; m /= 10, ++n)
+            buf[--d] = (char) ('0' + m % 10);
+        if (v < 0)
+            buf[i++] = '-';
+        if ((e = n - 1 - k) >= 7 || e < -3) {
+            buf[i++] = buf[d];
+            buf[i++] = '.';
+            if (n == 1)
+                buf[i++] = '0';
+            for (p = 1; p < n; ++p)
+                buf[i++] = buf[d + p];
+            buf[i++] = 'E';
+            if (e < 0) {
+                buf[i++] = '-';
+                e = -e;
+            }
+            if (e >= 100)
+                buf[i++] = (char) ('0' + e / 100);
+            if (e >= 10)
+                buf[i++] = (char) ('0' + e / 10 % 10);
+            buf[i++] = (char) ('0' + e % 10);
+        } else if (e < 0) {
+            buf[i++] = '0';
+            buf[i++] = '.';
+            while (++e < 0)
+                buf[i++] = '0';
+            for (p = 0; p < n; ++p)
+                buf[i++] = buf[d + p];
+        } else {
+            for (p = 0; p <= e; ++p)
+                buf[i++] = p < n ? buf[d + p] : '0';
+            buf[i++] = '.';
+            if (n <= e + 1)
+                buf[i++] = '0';
+            for (; p < n; ++p)
+                buf[i++] = buf[d + p];
+        }
+        return new String(buf, 0, i);
     }
 
     public int hashCode() {
@@ -40,6 +40,16 @@ public abstract class Fun implements Serializable {
         return ((Fun) apply(a)).apply(b);
     }
 
+    /**
+     * Applies the function, but may return a {@link TailCall} instead
+     * of doing a call in the tail position, leaving it to the caller.
+     * Called by {@link TailCall#run}, the default implementation
+     * is same as {@link #apply(Object)}.
+     */
+    public Object tailApply(Object arg) {
+        return apply(arg);
+    }
+
     public String toString() {
         return '<' + getClass().getName() + '>';
     }
@@ -30,42 +30,38 @@
  */
 package yeti.lang;
 
-import java.util.Arrays;
 import java.util.Map;
-import java.util.IdentityHashMap;
 
 /**
  * GenericStruct can be useful in Java code and for very large Yeti
  * structures, where pointer scan by field names becomes slow.
+ * Structures constructed from a Map are views of that map, others
+ * store field values in array, indexed by the shared
+ * {@link StructShape} of the structure.
  */
 public class GenericStruct extends AStruct {
     private final Map impl;
-    private final boolean allMutable;
-
-    private static String[] getNames(Map values) {
-        String[] result =
-            (String[]) values.keySet().toArray(new String[values.size()]);
-        Arrays.sort(result);
-        return result;
-    }
+    final Object[] values;
 
     /**
      * Construct a structure from Java standard Map.
      * Defaults to all fields being mutable.
+     * The shape is shared by all structures having the same key set.
      */
     public GenericStruct(Map values) {
-        super(getNames(values), null);
-        this.impl = values;
-        this.allMutable = true; // we don't know, use safe default.
+        // we don't know, use safe default.
+        super(StructShape.of(values.keySet(), true));
+        impl = values;
+        this.values = null;
     }
 
     /**
      * Construct a structure from Java standard Map.
      */
     public GenericStruct(Map values, boolean[] vars) {
-        super(getNames(values), vars);
-        this.impl = values;
-        allMutable = false;
+        super(shapeOf(values, vars));
+        impl = values;
+        this.values = null;
     }
 
     /**
@@ -74,27 +70,44 @@ public class GenericStruct extends AStruct {
      */
     public GenericStruct(String[] names, boolean[] vars) {
         super(names, vars);
-        impl = new IdentityHashMap(names.length);
-        allMutable = false;
+        impl = null;
+        values = new Object[names.length];
+    }
+
+    /**
+     * Construct a structure with given shape.
+     * Values must be initialized using set.
+     */
+    public GenericStruct(StructShape shape) {
+        super(shape);
+        impl = null;
+        values = new Object[shape.names.length];
+    }
+
+    private static StructShape shapeOf(Map values, boolean[] vars) {
+        StructShape shape = StructShape.of(values.keySet(), false);
+        return vars == null ? shape : StructShape.get(shape.names, vars);
     }
 
     public Object get(String field) {
-        return impl.get(field);
+        if (impl != null)
+            return impl.get(field);
+        int i = shape.index(field);
+        return i < 0 ? null : values[i];
     }
 
     public Object get(int field) {
-        return impl.get(name(field));
+        return impl != null ? impl.get(shape.names[field]) : values[field];
     }
 
     public void set(String field, Object value) {
-        impl.put(field, value);
-    }
-    
-    public Object ref(int field, int[] index, int at) {
-        if (!allMutable)
-            return super.ref(field, index, at);
-        index[at] = field;
-        index[at + 1] = 0;
-        return this;
+        if (impl != null) {
+            impl.put(field, value);
+            return;
+        }
+        int i = shape.index(field);
+        if (i < 0)
+            throw new IllegalArgumentException("No field " + field);
+        values[i] = value;
     }
 }
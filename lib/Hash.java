@@ -83,23 +83,6 @@ public class Hash extends java.util.HashMap implements ByKey, Coll {
     }
 
     public String toString() {
-        int n, size = size();
-        if (size == 0) {
-            return "[:]";
-        }
-        String[] s = new String[size * 4 + 1];
-        s[0] = "[";
-        java.util.Iterator i = entrySet().iterator();
-        for (n = 0; i.hasNext(); n += 4) {
-            Map.Entry e = (Map.Entry) i.next();
-            if (n != 0) {
-                s[n] = ",";
-            }
-            s[n + 1] = Core.show(e.getKey());
-            s[n + 2] = ":";
-            s[n + 3] = Core.show(e.getValue());
-        }
-        s[n] = "]";
-        return Core.concat(s);
+        return Show.show(this);
     }
 }
@@ -0,0 +1,180 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - atomic hash operations.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Yeti core library - atomic hash operations.
+ *
+ * Adapts Yeti functions to the java.util.Map compute methods, which
+ * are atomic on concurrent hashes.
+ */
+public final class HashFun implements BiFunction, BiConsumer {
+    private static final int APPLY = 0;
+    private static final int UPDATE = 1;
+    private static final int BOX = 2;
+    private static final int COMBINE = 3;
+
+    private final Fun fun;
+    private final int mode;
+
+    private HashFun(Fun fun_, int mode_) {
+        fun = fun_;
+        mode = mode_;
+    }
+
+    public Object apply(Object a, Object b) {
+        switch (mode) {
+        case UPDATE: // b is old value or null, when there was none
+            return notNull(fun.apply(b == null ? new Tag(null, "None")
+                                                : new Tag(b, "Some")));
+        case BOX: // reduce ignores null results, so these are boxed
+            return new Object[] { fun.apply(a, b) };
+        case COMBINE:
+            return new Object[] { fun.apply(((Object[]) a)[0],
+                                            ((Object[]) b)[0]) };
+        }
+        return notNull(fun.apply(a, b));
+    }
+
+    public void accept(Object a, Object b) {
+        fun.apply(a, b);
+    }
+
+    // Function and BiFunction can't be implemented by same class
+    private static final class Compute implements Function {
+        private final Fun fun;
+
+        Compute(Fun fun_) {
+            fun = fun_;
+        }
+
+        public Object apply(Object key) {
+            return fun.apply(key);
+        }
+    }
+
+    // ConcurrentHashMap can't store null, and compute would remove the key
+    private static Object notNull(Object value) {
+        if (value == null)
+            throw new IllegalArgumentException(
+                "Empty value ([] or ()) can't be stored in concurrentHash");
+        return value;
+    }
+
+    private static Map concurrent(Map h) {
+        if (h instanceof CHash)
+            h = ((CHash) h).impl;
+        return h instanceof ConcurrentHashMap ? h : null;
+    }
+
+    /**
+     * Returns value for key, computing and storing it with f when missing.
+     */
+    public static Object computeIfAbsent(Map h, Object key, Fun f) {
+        Map c = concurrent(h);
+        if (c != null)
+            return c.computeIfAbsent(key, new Compute(f));
+        // Map.computeIfAbsent would treat stored null as missing value
+        Object v = h.get(key);
+        if (v == null && !h.containsKey(key))
+            h.put(key, v = f.apply(key));
+        return v;
+    }
+
+    /**
+     * Stores value for key when missing, otherwise f old value.
+     */
+    public static Object merge(Map h, Object key, Object value, Fun f) {
+        Map c = concurrent(h);
+        if (c != null)
+            return c.merge(key, notNull(value), new HashFun(f, APPLY));
+        // Map.merge would treat stored null as missing value
+        Object old = h.get(key);
+        if (old != null || h.containsKey(key))
+            value = f.apply(old, value);
+        h.put(key, value);
+        return value;
+    }
+
+    /**
+     * Stores f (Some old | None ()) for the key.
+     */
+    public static Object update(Map h, Object key, Fun f) {
+        Map c = concurrent(h);
+        if (c != null)
+            return c.compute(key, new HashFun(f, UPDATE));
+        Object v = h.get(key);
+        v = f.apply(v != null || h.containsKey(key) ? new Tag(v, "Some")
+                                                    : new Tag(null, "None"));
+        h.put(key, v);
+        return v;
+    }
+
+    /**
+     * Applies f key value to all entries, in parallel on concurrent hashes.
+     */
+    public static void forEach(Map h, Fun f) {
+        Map c = concurrent(h);
+        if (c != null)
+            ((ConcurrentHashMap) c).forEach(1, new HashFun(f, APPLY));
+        else
+            h.forEach(new HashFun(f, APPLY));
+    }
+
+    /**
+     * Combines f key value results of all entries, in parallel on
+     * concurrent hashes. Returns zero for an empty hash.
+     */
+    public static Object reduce(Map h, Fun f, Fun combine, Object zero) {
+        Map c = concurrent(h);
+        if (c != null) {
+            Object[] r = (Object[]) ((ConcurrentHashMap) c).reduce(1,
+                new HashFun(f, BOX), new HashFun(combine, COMBINE));
+            return r == null ? zero : r[0];
+        }
+        Object r = zero;
+        boolean first = true;
+        for (Iterator i = h.entrySet().iterator(); i.hasNext();) {
+            Map.Entry e = (Map.Entry) i.next();
+            Object v = f.apply(e.getKey(), e.getValue());
+            r = first ? v : combine.apply(r, v);
+            first = false;
+        }
+        return r;
+    }
+}
@@ -48,20 +48,6 @@ final class Iterate extends LList {
         return rest;
     }
 
-    public String toString() {
-        StringBuilder buf = new StringBuilder("[");
-        buf.append(Core.show(first()));
-        AIter i = rest();
-        for (int n = 0; i != null && ++n <= 100; i = i.next()) {
-            buf.append(',');
-            buf.append(Core.show(i.first()));
-        }
-        if (i != null) {
-            buf.append("...");
-        }
-        buf.append(']');
-        return buf.toString();
-    }
 
     public Object copy() {
         return new Iterate(first(), f);
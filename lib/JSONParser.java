@@ -30,6 +30,7 @@
  */
 package yeti;
 
+import java.nio.CharBuffer;
 import java.text.ParseException;
 import yeti.lang.Core;
 import yeti.lang.Hash;
@@ -56,7 +57,7 @@ final class JSONParser {
     static Object parse(char[] data, int pos, int end) throws ParseException {
         JSONParser stack = new JSONParser(null, new MList(), 0);
         stack.result.reserve(1);
-        pos = parse(data, pos, end, stack);
+        pos = parse(data, CharBuffer.wrap(data), pos, end, stack);
         for (; pos >= 0 && pos < end && data[pos] <= ' '; ++pos);
         if (pos != end) {
             pos = Math.abs(pos);
@@ -65,7 +66,18 @@ final class JSONParser {
         return stack.result.length() <= 0 ? null : stack.result.get(0);
     }
 
-    private static int parse(char[] data, int pos, int end, JSONParser stack) {
+    private static boolean is(String word, char[] data, int at, int end) {
+        int i = word.length();
+        if (end - at != i)
+            return false;
+        while (--i >= 0)
+            if (data[at + i] != word.charAt(i))
+                return false;
+        return true;
+    }
+
+    private static int parse(char[] data, CharSequence text, int pos, int end,
+                             JSONParser stack) {
         MList array = null;
         int state = 0;
         for (;;) {
@@ -151,16 +163,15 @@ final class JSONParser {
                             break;
                         }
                     }
-                    String s = new String(data, ss, pos - ss);
-                    if (s.equals("null")) {
+                    if (is("null", data, ss, pos)) {
                         stack.result.add(null);
-                    } else if (s.equals("false")) {
+                    } else if (is("false", data, ss, pos)) {
                         stack.result.add(Boolean.FALSE);
-                    } else if (s.equals("true")) {
+                    } else if (is("true", data, ss, pos)) {
                         stack.result.add(Boolean.TRUE);
                     } else {
                         try {
-                            stack.result.add(Core.parseNum(s));
+                            stack.result.add(Core.parseNum(text, ss, pos));
                         } catch (Exception ex) {
                             return -pos;
                         }
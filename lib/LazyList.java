@@ -48,18 +48,4 @@ public final class LazyList extends LList {
         return rest;
     }
 
-    public String toString() {
-        StringBuilder buf = new StringBuilder("[");
-        buf.append(Core.show(first()));
-        AIter i = rest();
-        for (int n = 0; i != null && ++n <= 100; i = i.next()) {
-            buf.append(',');
-            buf.append(Core.show(i.first()));
-        }
-        if (i != null) {
-            buf.append("...");
-        }
-        buf.append(']');
-        return buf.toString();
-    }
 }
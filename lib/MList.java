@@ -96,18 +96,6 @@ abstract class AMList extends AList implements Serializable {
         return j == null;
     }
 
-    public String toString() {
-        Object[] array = array();
-        StringBuilder buf = new StringBuilder("[");
-        for (int cnt = _size(), i = start; i < cnt; ++i) {
-            if (i > start)
-                buf.append(',');
-            buf.append(Core.show(array[i]));
-        }
-        buf.append(']');
-        return buf.toString();
-    }
-
     public void forEach(Object fun) {
         Fun f = (Fun) fun;
         Object[] array = array();
@@ -443,7 +431,7 @@ public class MList extends AMList implements ByKey {
         return null;
     }
 
-    private void removeRange(ListRange range) {
+    void removeRange(ListRange range) {
         int from = range.first.intValue(),
             to = range.last.intValue();
         if (range.inc < 0) {
@@ -546,11 +534,11 @@ public class MList extends AMList implements ByKey {
         return start >= size;
     }
 
-    final int _size() {
+    int _size() {
         return size;
     }
 
-    final Object[] array() {
+    Object[] array() {
         return array;
     }
 
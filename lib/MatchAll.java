@@ -41,10 +41,10 @@ final class MatchAllFun extends Fun {
     final class Match extends LList {
         private AList rest;
         private final int last;
-        private final String str;
+        private final CharSequence str;
         private Matcher m;
 
-        Match(Object v, int last_, String str_, Matcher m_) {
+        Match(Object v, int last_, CharSequence str_, Matcher m_) {
             super(v, null);
             last = last_;
             str = str_;
@@ -66,14 +66,14 @@ final class MatchAllFun extends Fun {
         skipFun = skipFun_;
     }
 
-    AList get(String s, Matcher m, int last) {
+    AList get(CharSequence s, Matcher m, int last) {
         if (!m.find()) {
-            return (s = s.substring(last)).length() == 0
-                    ? null : new LList(skipFun.apply(s), null);
+            return last >= s.length() ? null : new LList(skipFun.apply(
+                        s.subSequence(last, s.length()).toString()), null);
         }
         int st = m.start();
         Object skip = last >= st ? null :
-            skipFun.apply(s.substring(last, st));
+            skipFun.apply(s.subSequence(last, st).toString());
         Object[] r = new Object[m.groupCount() + 1];
         for (int i = r.length; --i >= 0;) {
             String g;
@@ -86,7 +86,7 @@ final class MatchAllFun extends Fun {
     }
 
     public Object apply(Object str) {
-        String s = (String) str;
+        CharSequence s = (CharSequence) str;
         return get(s, pattern.matcher(s), 0);
     }
 }
@@ -0,0 +1,347 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - mutable views of primitive arrays.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+import java.lang.reflect.Array;
+
+/**
+ * Yeti core library - mutable array view of a Java primitive array.
+ *
+ * Elements are read from and written to the Java array, boxing happens
+ * only for the element values passed to Yeti code. The backing array
+ * can't grow, so push only works when there is room after pop or
+ * delete, like with the reserved capacity of ordinary arrays.
+ * Copies (copy, slice) are made into new primitive arrays.
+ */
+public abstract class PMList extends MList {
+    final Object data;
+    int end;
+
+    PMList(Object data, int start, int end) {
+        this.data = data;
+        this.start = start;
+        this.end = end;
+    }
+
+    abstract Object at(int i);
+
+    abstract void set(int i, Object value);
+
+    // read-through immutable list view
+    abstract PArray view(int from, int to);
+
+    abstract PMList make(Object data, int start, int end);
+
+    public static MList wrap(double[] array) {
+        return array == null ? new MList()
+                             : new DoubleMList(array, 0, array.length);
+    }
+
+    public static MList wrap(long[] array) {
+        return array == null ? new MList()
+                             : new LongMList(array, 0, array.length);
+    }
+
+    /**
+     * Converts the sequence into double array. The backing array of
+     * a whole-array view is passed as is, otherwise a copy is made.
+     */
+    public static double[] doubles(AList l) {
+        if (l instanceof DoubleMList) {
+            PMList a = (PMList) l;
+            if (a.start == 0 && a.end == ((double[]) a.data).length)
+                return (double[]) a.data;
+        }
+        double[] r = ArrayMath.doubles(l);
+        return l instanceof PArray && r == ((PArray) l).array
+                ? (double[]) r.clone() : r;
+    }
+
+    /**
+     * Converts the sequence into long array. The backing array of
+     * a whole-array view is passed as is, otherwise a copy is made.
+     */
+    public static long[] longs(AList l) {
+        if (l instanceof LongMList) {
+            PMList a = (PMList) l;
+            if (a.start == 0 && a.end == ((long[]) a.data).length)
+                return (long[]) a.data;
+        }
+        long[] r = new long[l == null ? 0 : (int) l.length()];
+        int n = 0;
+        for (AIter i = l; i != null; i = i.next())
+            r[n++] = ((Num) i.first()).longValue();
+        return r;
+    }
+
+    AList list(int from) {
+        return from < end ? view(from, end) : null;
+    }
+
+    private int checkIndex(int i) {
+        int n = end - start;
+        if (i < 0 || i >= n)
+            throw new NoSuchKeyException(i, n < 0 ? 0 : n);
+        return i + start;
+    }
+
+    private PMList copyOf(int from, int to) {
+        int n = to > from ? to - from : 0;
+        Object a = Array.newInstance(data.getClass().getComponentType(), n);
+        System.arraycopy(data, from, a, 0, n);
+        return make(a, 0, n);
+    }
+
+    int _size() {
+        return end;
+    }
+
+    // boxed copy for the generic AMList code
+    Object[] array() {
+        Object[] r = new Object[end];
+        for (int i = start; i < end; ++i)
+            r[i] = at(i);
+        return r;
+    }
+
+    public Object copy() {
+        return copyOf(start, end);
+    }
+
+    public void reserve(int n) {
+        // the capacity is fixed by the Java array
+    }
+
+    public void add(Object o) {
+        if (end >= Array.getLength(data))
+            throw new UnsupportedOperationException(
+                "Cannot push into an array backed by full Java array");
+        set(end++, o);
+    }
+
+    public Object shift() {
+        if (start >= end)
+            throw new EmptyArrayException("No first element in empty array");
+        return at(start++);
+    }
+
+    public Object pop() {
+        if (start >= end)
+            throw new EmptyArrayException("Cannot pop from an empty array");
+        return at(--end);
+    }
+
+    public void clear() {
+        start = end = 0;
+    }
+
+    public Object first() {
+        if (start >= end)
+            throw new EmptyArrayException("No first element in empty array");
+        return at(start);
+    }
+
+    public AList rest() {
+        return list(start + 1);
+    }
+
+    public AIter next() {
+        AList l = list(start + 1);
+        return l == null ? null : l.dup();
+    }
+
+    public boolean containsKey(Object index) {
+        int i;
+        return (i = ((Number) index).intValue()) >= 0 && i + start < end;
+    }
+
+    public Object vget(Object index) {
+        return at(checkIndex(((Number) index).intValue()));
+    }
+
+    public Object get(int index) {
+        return at(checkIndex(index));
+    }
+
+    public Object put(Object index, Object value) {
+        set(checkIndex(((Number) index).intValue()), value);
+        return null;
+    }
+
+    public Object remove(Object index) {
+        int i = checkIndex(((Number) index).intValue()), n;
+        if ((n = --end - i) > 0)
+            System.arraycopy(data, i + 1, data, i, n);
+        return null;
+    }
+
+    void removeRange(ListRange range) {
+        int from = range.first.intValue(),
+            to = range.last.intValue();
+        if (range.inc < 0) {
+            int tmp = from;
+            from = to;
+            to = tmp;
+        }
+        if (from <= to) {
+            checkIndex(from);
+            checkIndex(to);
+            int n = end - start;
+            if (++to < n)
+                System.arraycopy(data, to + start, data, from + start, n - to);
+            end -= to - from;
+        }
+    }
+
+    public MList copy(int from, int to) {
+        int n = end - start;
+        if (from < 0 || from > n)
+            throw new NoSuchKeyException(from, n);
+        if (to > n)
+            throw new NoSuchKeyException("Copy range " + from + " to " + to +
+                                         " exceeds array length " + n);
+        return copyOf(start + from, start + to);
+    }
+
+    public AList take(int from, int count) {
+        if (from < 0)
+            from = 0;
+        from += start;
+        if (count < 0)
+            return from == start && from < end ? this : list(from);
+        if ((count += start) > end)
+            count = end;
+        return make(data, from, count);
+    }
+
+    public AList find(Fun pred) {
+        for (int i = start; i < end; ++i)
+            if (pred.apply(at(i)) == Boolean.TRUE)
+                return view(i, end);
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return start >= end;
+    }
+
+    public Object[] toArray(Object[] to) {
+        for (int i = start; i < end; ++i)
+            to[i - start] = at(i);
+        return to;
+    }
+
+    public void forEach(Object fun) {
+        Fun f = (Fun) fun;
+        for (int i = start; i < end; ++i)
+            f.apply(at(i));
+    }
+
+    public Object fold(Fun f, Object v) {
+        for (int i = start; i < end; ++i)
+            v = f.apply(v, at(i));
+        return v;
+    }
+
+    public Num index(Object v) {
+        for (int i = start; i < end; ++i)
+            if (v.equals(at(i)))
+                return new IntNum(i - start);
+        return null;
+    }
+
+    public AList map(Fun f) {
+        if (start >= end)
+            return null;
+        Object[] result = new Object[end - start];
+        for (int i = start; i < end; ++i)
+            result[i - start] = f.apply(at(i));
+        return new MList(result);
+    }
+}
+
+final class DoubleMList extends PMList {
+    private final double[] a;
+
+    DoubleMList(double[] a, int start, int end) {
+        super(a, start, end);
+        this.a = a;
+    }
+
+    Object at(int i) {
+        return new FloatNum(a[i]);
+    }
+
+    void set(int i, Object value) {
+        a[i] = ((Num) value).doubleValue();
+    }
+
+    PArray view(int from, int to) {
+        return new FloatArray(from, to, a);
+    }
+
+    PMList make(Object data, int start, int end) {
+        return new DoubleMList((double[]) data, start, end);
+    }
+}
+
+final class LongMList extends PMList {
+    private final long[] a;
+
+    LongMList(long[] a, int start, int end) {
+        super(a, start, end);
+        this.a = a;
+    }
+
+    Object at(int i) {
+        return new IntNum(a[i]);
+    }
+
+    void set(int i, Object value) {
+        Num n = (Num) value;
+        long v = n.longValue();
+        // don't truncate fractions and wrap big integers silently
+        // (doubles over long range convert to Long.MAX_VALUE = 2^63)
+        if (!(n instanceof IntNum) && (n.compareTo(new IntNum(v)) != 0 ||
+                n instanceof FloatNum && n.doubleValue() >= 0x1p63))
+            throw new IllegalArgumentException(
+                        "Not a long[] element value: " + value);
+        a[i] = v;
+    }
+
+    PArray view(int from, int to) {
+        return new PArray(from, to, a);
+    }
+
+    PMList make(Object data, int start, int end) {
+        return new LongMList((long[]) data, start, end);
+    }
+}
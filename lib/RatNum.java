@@ -34,8 +34,8 @@ import java.math.BigInteger;
 
 /** Yeti core library - rational numbers. */
 public final class RatNum extends Num {
-    private final long numerator;
-    private final long denominator;
+    final long numerator;
+    final long denominator;
 
     public RatNum(int numerator, int denominator) {
         if (denominator == 0) {
@@ -50,7 +50,8 @@ public final class RatNum extends Num {
         }
     }
 
-    private RatNum(long numerator, long denominator) {
+    // the fraction must be reduced, with positive denominator
+    RatNum(long numerator, long denominator) {
         this.numerator = numerator;
         this.denominator = denominator;
     }
@@ -0,0 +1,302 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - rope.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Yeti core library - rope leaf, slice of a string. */
+final class RopeLeaf extends Rope {
+    final String str;
+    final int offset;
+
+    RopeLeaf(String str, int offset, int length) {
+        super(length, 0);
+        this.str = str;
+        this.offset = offset;
+    }
+
+    public char charAt(int index) {
+        if (index < 0 || index >= length)
+            throw new StringIndexOutOfBoundsException(index);
+        return str.charAt(offset + index);
+    }
+
+    Rope sub(int start, int end) {
+        return start == 0 && end == length ? this
+                : new RopeLeaf(str, offset + start, end - start);
+    }
+
+    void appendTo(StringBuilder to) {
+        to.append(str, offset, offset + length);
+    }
+
+    public String toString() {
+        return offset == 0 && length == str.length()
+                ? str : str.substring(offset, offset + length);
+    }
+}
+
+/** Yeti core library - rope concatenation node. */
+final class RopeNode extends Rope {
+    final Rope left;
+    final Rope right;
+
+    RopeNode(Rope left, Rope right) {
+        super(left.length + right.length,
+              (left.depth > right.depth ? left.depth : right.depth) + 1);
+        this.left = left;
+        this.right = right;
+    }
+
+    Rope sub(int start, int end) {
+        if (start == 0 && end == length)
+            return this;
+        int n = left.length;
+        if (end <= n)
+            return left.sub(start, end);
+        if (start >= n)
+            return right.sub(start - n, end - n);
+        return concat(left.sub(start, n), right.sub(0, end - n));
+    }
+
+    void appendTo(StringBuilder to) {
+        left.appendTo(to);
+        right.appendTo(to);
+    }
+}
+
+/**
+ * Yeti core library - rope.
+ *
+ * Immutable character sequence represented as AVL-balanced binary tree
+ * of string slices, so concatenation and slicing are O(log n) and
+ * never copy the text (only short pieces are merged into new strings).
+ * The rope is flattened into string lazily by toString(), which caches
+ * the result. Regex matchers can be used directly on the rope, as
+ * sequential charAt calls are served from the last found leaf.
+ */
+public abstract class Rope implements CharSequence {
+    /** Concatenations shorter than this are copied into single leaf. */
+    static final int SHORT = 128;
+    public static final Rope EMPTY = new RopeLeaf("", 0, 0);
+
+    final int length;
+    final int depth;
+    private String flat;
+    private Cursor cursor;
+
+    private static final class Cursor {
+        final String str;
+        final int start;
+        final int end;
+        final int shift;
+
+        Cursor(String str, int start, int end, int shift) {
+            this.str = str;
+            this.start = start;
+            this.end = end;
+            this.shift = shift;
+        }
+    }
+
+    Rope(int length, int depth) {
+        this.length = length;
+        this.depth = depth;
+    }
+
+    abstract Rope sub(int start, int end);
+
+    abstract void appendTo(StringBuilder to);
+
+    public static Rope of(String s) {
+        return s.length() == 0 ? EMPTY : new RopeLeaf(s, 0, s.length());
+    }
+
+    public final int length() {
+        return length;
+    }
+
+    public char charAt(int index) {
+        String s = flat;
+        if (s != null)
+            return s.charAt(index);
+        Cursor c = cursor;
+        if (c == null || index < c.start || index >= c.end) {
+            if (index < 0 || index >= length)
+                throw new StringIndexOutOfBoundsException(index);
+            Rope r = this;
+            int start = 0;
+            while (r instanceof RopeNode) {
+                RopeNode n = (RopeNode) r;
+                if (index - start < n.left.length) {
+                    r = n.left;
+                } else {
+                    start += n.left.length;
+                    r = n.right;
+                }
+            }
+            RopeLeaf l = (RopeLeaf) r;
+            cursor = c = new Cursor(l.str, start, start + l.length,
+                                    l.offset - start);
+        }
+        return c.str.charAt(index + c.shift);
+    }
+
+    public final Rope slice(int start, int end) {
+        if (start < 0 || end > length || start > end)
+            throw new StringIndexOutOfBoundsException("slice " + start
+                        + ".." + end + " of rope with length " + length);
+        return sub(start, end);
+    }
+
+    public final CharSequence subSequence(int start, int end) {
+        return slice(start, end);
+    }
+
+    public final Rope append(String s) {
+        return concat(this, of(s));
+    }
+
+    public static Rope concat(Rope a, Rope b) {
+        if (a.length == 0)
+            return b;
+        if (b.length == 0)
+            return a;
+        if (a.length + b.length <= SHORT)
+            return of(a.toString().concat(b.toString()));
+        if (a instanceof RopeNode && b.depth == 0) {
+            // appending short pieces one by one is common
+            RopeNode n = (RopeNode) a;
+            if (n.right.depth == 0 && n.right.length + b.length <= SHORT)
+                return new RopeNode(n.left,
+                        of(n.right.toString().concat(b.toString())));
+        }
+        return join(a, b);
+    }
+
+    private static Rope join(Rope a, Rope b) {
+        if (a.depth > b.depth + 1) {
+            RopeNode n = (RopeNode) a;
+            return balance(n.left, join(n.right, b));
+        }
+        if (b.depth > a.depth + 1) {
+            RopeNode n = (RopeNode) b;
+            return balance(join(a, n.left), n.right);
+        }
+        return new RopeNode(a, b);
+    }
+
+    // l and r are balanced and their depths differ at most by 2
+    private static Rope balance(Rope l, Rope r) {
+        RopeNode n, m;
+        if (l.depth > r.depth + 1) {
+            n = (RopeNode) l;
+            if (n.left.depth >= n.right.depth)
+                return new RopeNode(n.left, new RopeNode(n.right, r));
+            m = (RopeNode) n.right;
+            return new RopeNode(new RopeNode(n.left, m.left),
+                                new RopeNode(m.right, r));
+        }
+        if (r.depth > l.depth + 1) {
+            n = (RopeNode) r;
+            if (n.right.depth >= n.left.depth)
+                return new RopeNode(new RopeNode(l, n.left), n.right);
+            m = (RopeNode) n.left;
+            return new RopeNode(new RopeNode(l, m.left),
+                                new RopeNode(m.right, n.right));
+        }
+        return new RopeNode(l, r);
+    }
+
+    private static Rope concat(Object[] ropes, int from, int to) {
+        if (to - from == 1)
+            return (Rope) ropes[from];
+        int middle = (from + to) >>> 1;
+        return concat(concat(ropes, from, middle), concat(ropes, middle, to));
+    }
+
+    /** Concatenates list of ropes into balanced rope. */
+    public static Rope concat(AList ropes) {
+        List l = new ArrayList();
+        for (AIter i = ropes; i != null; i = i.next())
+            l.add(i.first());
+        return l.isEmpty() ? EMPTY : concat(l.toArray(), 0, l.size());
+    }
+
+    /**
+     * Replaces the pattern matches in the rope with results of applying
+     * the function to the matched groups. The unmatched parts of the
+     * rope are shared with the result.
+     */
+    public static Rope replace(Object pattern, Fun f, Rope r) {
+        Matcher m = Pattern.compile((String) pattern, Pattern.DOTALL)
+                           .matcher(r);
+        if (!m.find())
+            return r;
+        Rope result = EMPTY;
+        int last = 0;
+        do {
+            Object[] g = new Object[m.groupCount() + 1];
+            for (int i = g.length; --i >= 0;) {
+                String s;
+                if ((s = m.group(i)) == null)
+                    s = Core.UNDEF_STR;
+                g[i] = s;
+            }
+            result = concat(concat(result, r.sub(last, m.start())),
+                            of((String) f.apply(new MList(g))));
+            last = m.end();
+        } while (m.find());
+        return concat(result, r.sub(last, r.length));
+    }
+
+    public String toString() {
+        String s = flat;
+        if (s == null) {
+            StringBuilder to = new StringBuilder(length);
+            appendTo(to);
+            flat = s = to.toString();
+        }
+        return s;
+    }
+
+    public boolean equals(Object o) {
+        return o == this || o instanceof Rope
+            && ((Rope) o).length == length && o.toString().equals(toString());
+    }
+
+    public int hashCode() {
+        return toString().hashCode();
+    }
+}
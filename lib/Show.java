@@ -0,0 +1,349 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - value printer.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Yeti core library - value printer.
+ *
+ * Formats Yeti values in the same way as their toString methods, but
+ * iteratively, using an explicit stack of open lists, structures and
+ * hashes instead of recursion, so deeply nested values can't overflow
+ * the Java stack. The output is written in chunks into an Appendable,
+ * and can be bounded by the nesting depth, the number of elements shown
+ * for a single list, structure or hash, and the total output length.
+ * Elided parts are marked with "...".
+ *
+ * Lazy lists are always cut after 101 elements, as infinite lists
+ * couldn't be printed otherwise.
+ */
+public final class Show {
+    private static final int LIST = 0;
+    private static final int STRUCT = 1;
+    private static final int HASH = 2;
+    private static final int LAZY_ITEMS = 101;
+    private static final int CHUNK = 8192;
+    private static final RuntimeException FULL = new RuntimeException();
+
+    private static final class Frame {
+        final Frame up;
+        final int kind;
+        final int depth;
+        final int limit;
+        int n;
+        AIter list;
+        Struct struct;
+        int field;
+        Iterator entries;
+        Object value;
+        boolean hasValue;
+
+        Frame(Frame up, int kind, int limit) {
+            this.up = up;
+            this.kind = kind;
+            this.limit = limit;
+            depth = up == null ? 1 : up.depth + 1;
+        }
+    }
+
+    private final Appendable out;
+    private final StringBuilder buf;
+    private final int maxDepth;
+    private final int maxItems;
+    private long left;
+
+    /**
+     * Creates printer writing into out. Lists, structures and hashes
+     * nested deeper than maxDepth levels are shown as [...] or {...},
+     * at most maxItems elements are shown from each of those, and
+     * the output is cut after maxLength characters.
+     */
+    public Show(Appendable out, int maxDepth, int maxItems, long maxLength) {
+        this.out = out;
+        this.buf = out instanceof StringBuilder
+                        ? (StringBuilder) out : new StringBuilder();
+        this.maxDepth = maxDepth;
+        this.maxItems = maxItems;
+        this.left = maxLength;
+    }
+
+    /** Formats the value without limits. */
+    static String show(Object value) {
+        return show(value, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                    Long.MAX_VALUE);
+    }
+
+    /** Formats the value using the given limits. */
+    public static String show(Object value, int maxDepth, int maxItems,
+                              long maxLength) {
+        StringBuilder r = new StringBuilder();
+        try {
+            new Show(r, maxDepth, maxItems, maxLength).print(value);
+        } catch (IOException ex) {
+            // StringBuilder doesn't throw
+        }
+        return r.toString();
+    }
+
+    /** Formats the value with limits suitable for interactive display. */
+    public static String preview(Object value) {
+        return show(value, 100, 1000, 100000);
+    }
+
+    private static boolean composite(Object v) {
+        return v instanceof AList || v instanceof AStruct ||
+               v instanceof Hash || v instanceof Tag;
+    }
+
+    /**
+     * Prints the value as out.print(String.valueOf(value)) would,
+     * without building the whole string in memory.
+     */
+    public static void print(PrintStream out, Object value, boolean nl) {
+        if (!composite(value)) {
+            if (nl)
+                out.println(value);
+            else
+                out.print(value);
+            return;
+        }
+        synchronized (out) {
+            try {
+                new Show(out, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                         Long.MAX_VALUE).print(value);
+            } catch (IOException ex) {
+                // PrintStream doesn't throw
+            }
+            if (nl)
+                out.println();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (buf != out && buf.length() != 0) {
+            out.append(buf);
+            buf.setLength(0);
+        }
+    }
+
+    private void append(CharSequence s, int from, int to) throws IOException {
+        if (to - from > left) {
+            buf.append(s, from, from + (int) left).append("...");
+            throw FULL;
+        }
+        left -= to - from;
+        buf.append(s, from, to);
+        if (buf.length() >= CHUNK)
+            flush();
+    }
+
+    private void append(String s) throws IOException {
+        append(s, 0, s.length());
+    }
+
+    private void quote(String s) throws IOException {
+        append("\"");
+        int p = 0, i = 0, cnt = s.length();
+        for (String c; i < cnt; ++i) {
+            char ch = s.charAt(i);
+            if (ch == '\\') {
+                c = "\\\\";
+            } else if (ch == '"') {
+                c = "\\\"";
+            } else if (ch == '\n') {
+                c = "\\n";
+            } else if (ch == '\r') {
+                c = "\\r";
+            } else if (ch == '\t') {
+                c = "\\t";
+            } else if (ch < ' ') {
+                c = "000".concat(Integer.toHexString(ch));
+                c = "\\u".concat(c.substring(c.length() - 4));
+            } else {
+                continue;
+            }
+            append(s, p, i);
+            append(c);
+            p = i + 1;
+        }
+        append(s, p, i);
+        append("\"");
+    }
+
+    // prints leaf value, or opens the composite value and returns its frame
+    private Frame open(Object v, Frame up) throws IOException {
+        while (v instanceof Tag) {
+            Tag t = (Tag) v;
+            append(t.name);
+            append(" ");
+            v = t.value;
+        }
+        if (v == null) {
+            append("[]");
+            return up;
+        }
+        if (v instanceof String) {
+            quote((String) v);
+            return up;
+        }
+        boolean deep = (up == null ? 0 : up.depth) >= maxDepth;
+        Frame f;
+        if (v instanceof AList) {
+            AList l = (AList) v;
+            if (l.isEmpty()) {
+                append("[]");
+                return up;
+            }
+            if (deep) {
+                append("[...]");
+                return up;
+            }
+            append("[");
+            f = new Frame(up, LIST, l instanceof LazyList ||
+                l instanceof Iterate ? Math.min(maxItems, LAZY_ITEMS)
+                                     : maxItems);
+            f.list = l;
+        } else if (v instanceof AStruct) {
+            if (deep) {
+                append("{...}");
+                return up;
+            }
+            append("{");
+            f = new Frame(up, STRUCT, maxItems);
+            f.struct = (Struct) v;
+        } else if (v instanceof Hash) {
+            Hash h = (Hash) v;
+            if (h.isEmpty()) {
+                append("[:]");
+                return up;
+            }
+            if (deep) {
+                append("[...]");
+                return up;
+            }
+            append("[");
+            f = new Frame(up, HASH, maxItems);
+            f.entries = h.entrySet().iterator();
+        } else {
+            append(v.getClass().isArray() ? Core.show(v)
+                                          : String.valueOf(v));
+            return up;
+        }
+        return f;
+    }
+
+    /** Prints the value, as formatted by Core.show. */
+    public void print(Object value) throws IOException {
+        try {
+            Frame f = open(value, null);
+            while (f != null) {
+                Object v = null;
+                switch (f.kind) {
+                case LIST:
+                    if (f.list == null) {
+                        append("]");
+                        f = f.up;
+                        continue;
+                    }
+                    if (f.n >= f.limit) {
+                        append("...]");
+                        f = f.up;
+                        continue;
+                    }
+                    if (f.n != 0)
+                        append(",");
+                    v = f.list.first();
+                    f.list = f.list.next();
+                    break;
+                case STRUCT: {
+                    Struct st = f.struct;
+                    int i = f.field, cnt = st.count();
+                    String name = "";
+                    while (i < cnt && (name = st.eqName(i)) == "")
+                        ++i;
+                    if (i >= cnt) {
+                        append("}");
+                        f = f.up;
+                        continue;
+                    }
+                    if (f.n >= f.limit) {
+                        append("...}");
+                        f = f.up;
+                        continue;
+                    }
+                    if (i != 0)
+                        append(", ");
+                    append(name);
+                    append("=");
+                    v = st.get(i);
+                    f.field = i + 1;
+                    break;
+                }
+                default:
+                    if (f.hasValue) {
+                        append(":");
+                        f.hasValue = false;
+                        v = f.value;
+                        f.value = null;
+                        break;
+                    }
+                    if (!f.entries.hasNext()) {
+                        append("]");
+                        f = f.up;
+                        continue;
+                    }
+                    if (f.n >= f.limit) {
+                        append("...]");
+                        f = f.up;
+                        continue;
+                    }
+                    if (f.n != 0)
+                        append(",");
+                    Map.Entry e = (Map.Entry) f.entries.next();
+                    v = e.getKey();
+                    f.value = e.getValue();
+                    f.hasValue = true;
+                    --f.n; // the value is counted
+                }
+                ++f.n;
+                f = open(v, f);
+            }
+        } catch (RuntimeException ex) {
+            if (ex != FULL)
+                throw ex;
+        }
+        flush();
+    }
+}
@@ -42,8 +42,12 @@ public class Struct3 extends AStruct {
         super(names, vars);
     }
 
+    public Struct3(StructShape shape) {
+        super(shape);
+    }
+
     public Object get(String field) {
-        String[] a = names;
+        String[] a = shape.names;
         if (a[0] == field)
             return _0;
         if (a[1] == field)
@@ -74,7 +78,7 @@ public class Struct3 extends AStruct {
     }
 
     public void set(String field, Object value) {
-        String[] a = names;
+        String[] a = shape.names;
         if (a[0] == field)
             _0 = value;
         else if (a[1] == field)
@@ -45,8 +45,12 @@ public class Struct6 extends AStruct {
         super(names, vars);
     }
 
+    public Struct6(StructShape shape) {
+        super(shape);
+    }
+
     public Object get(String field) {
-        String[] a = names;
+        String[] a = shape.names;
         if (a[0] == field)
             return _0;
         if (a[1] == field)
@@ -75,7 +79,7 @@ public class Struct6 extends AStruct {
     }
 
     public void set(String field, Object value) {
-        String[] a = names;
+        String[] a = shape.names;
         if (a[0] == field)
             _0 = value;
         else if (a[1] == field)
@@ -0,0 +1,224 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - shared structure shape.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Structure shape - sorted field names, mutability flags and field index.
+ *
+ * Shapes are interned, so all structures with the same fields share
+ * single shape instance, and equal shapes can be compared by identity.
+ * The intern table references shapes weakly, so shapes of structures
+ * created from data (like JSON objects) don't stay in memory forever.
+ */
+public final class StructShape implements Serializable {
+    private static final int CACHE_SIZE = 4096;
+    // field signature -> weak reference to shape
+    private static final Map SHAPES = new WeakHashMap();
+    // names array (by identity) -> shape, for the legacy constructors
+    private static final Map BY_ARRAY = new ConcurrentHashMap();
+    // hash of unordered field name set -> candidate shapes
+    private static final Map BY_SET = new ConcurrentHashMap();
+
+    final String[] names;
+    final boolean[] vars;
+    // some field values are computed (getters or references into parent)
+    final boolean computed;
+    private final transient String key; // keeps the SHAPES entry alive
+    private final String[] slots;
+    private final int[] slotIndex;
+
+    private StructShape(String key, String[] names, boolean[] vars,
+                        boolean computed) {
+        this.key = key;
+        this.names = names;
+        this.vars = vars;
+        this.computed = computed;
+        int n = 4;
+        while (n < names.length * 2)
+            n <<= 1;
+        slots = new String[n];
+        slotIndex = new int[n];
+        int mask = n - 1;
+        for (int i = 0; i < names.length; ++i) {
+            int j = names[i].hashCode() & mask;
+            while (slots[j] != null)
+                j = j + 1 & mask;
+            slots[j] = names[i];
+            slotIndex[j] = i;
+        }
+    }
+
+    /**
+     * Returns shape for the given alphabetically sorted and interned
+     * field names. The vars array gives mutable fields, or is null
+     * when all fields are immutable.
+     */
+    public static StructShape get(String[] names, boolean[] vars) {
+        return get(names, vars, false);
+    }
+
+    /**
+     * Returns shape like get(names, vars), but marked as having
+     * computed fields, if the computed argument is true. Values of
+     * computed fields may change even when those aren't mutable.
+     */
+    public static StructShape get(String[] names, boolean[] vars,
+                                  boolean computed) {
+        Object[] cached = (Object[]) BY_ARRAY.get(names);
+        if (cached != null && cached[0] == vars &&
+                ((StructShape) cached[1]).computed == computed)
+            return (StructShape) cached[1];
+        StringBuilder key = new StringBuilder(computed ? "!" : "");
+        boolean mutable = false;
+        for (int i = 0; i < names.length; ++i) {
+            boolean var = vars != null && vars[i];
+            key.append(var ? ';' : ',').append(names[i]);
+            mutable |= var;
+        }
+        StructShape shape = intern(key.toString(), names,
+                                   mutable ? vars : null, computed);
+        // arrays created per structure instance would only fill the cache
+        if (BY_ARRAY.size() >= CACHE_SIZE)
+            BY_ARRAY.clear();
+        BY_ARRAY.put(names, new Object[] { vars, shape });
+        return shape;
+    }
+
+    private boolean hasAll(Collection fields, boolean allMutable) {
+        if (computed || (vars != null) != allMutable)
+            return false;
+        for (Iterator i = fields.iterator(); i.hasNext();)
+            if (index((String) i.next()) < 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns shape for the given set of field names (that do not need
+     * to be sorted nor interned). Known field sets are found by
+     * an order-independent hash, without sorting the names.
+     */
+    public static StructShape of(Collection fields, boolean allMutable) {
+        int n = fields.size(), h = n;
+        for (Iterator i = fields.iterator(); i.hasNext();)
+            h += i.next().hashCode();
+        allMutable &= n != 0;
+        Integer setHash = Integer.valueOf(allMutable ? ~h : h);
+        StructShape[] candidates = (StructShape[]) BY_SET.get(setHash);
+        if (candidates != null)
+            for (int i = 0; i < candidates.length; ++i)
+                if (candidates[i].names.length == n &&
+                        candidates[i].hasAll(fields, allMutable))
+                    return candidates[i];
+        String[] names = (String[]) fields.toArray(new String[n]);
+        Arrays.sort(names);
+        StringBuilder key = new StringBuilder();
+        char prefix = allMutable ? ';' : ',';
+        for (int i = 0; i < n; ++i)
+            key.append(prefix).append(names[i] = names[i].intern());
+        boolean[] vars = null;
+        if (allMutable) {
+            vars = new boolean[n];
+            Arrays.fill(vars, true);
+        }
+        StructShape shape = intern(key.toString(), names, vars, false);
+        if (BY_SET.size() >= CACHE_SIZE)
+            BY_SET.clear();
+        if (candidates == null) {
+            candidates = new StructShape[] { shape };
+        } else {
+            candidates = (StructShape[]) Arrays.copyOf(candidates,
+                                            candidates.length + 1);
+            candidates[candidates.length - 1] = shape;
+        }
+        BY_SET.put(setHash, candidates);
+        return shape;
+    }
+
+    private static StructShape intern(String key, String[] names,
+                                      boolean[] vars, boolean computed) {
+        synchronized (SHAPES) {
+            WeakReference ref = (WeakReference) SHAPES.get(key);
+            StructShape shape = ref == null ? null : (StructShape) ref.get();
+            if (shape == null) {
+                shape = new StructShape(key, names, vars, computed);
+                // stale entry would keep the old key instance
+                SHAPES.remove(key);
+                SHAPES.put(shape.key, new WeakReference(shape));
+            }
+            return shape;
+        }
+    }
+
+    private Object readResolve() {
+        String[] a = new String[names.length];
+        for (int i = 0; i < a.length; ++i)
+            a[i] = names[i].intern();
+        return get(a, vars, computed);
+    }
+
+    /** Field count. */
+    public int count() {
+        return names.length;
+    }
+
+    /** Field name by index. */
+    public String name(int field) {
+        return names[field];
+    }
+
+    /** Whether the field is mutable. */
+    public boolean mutable(int field) {
+        return vars != null && vars[field];
+    }
+
+    /**
+     * Field index by name, or -1 if there is no such field.
+     * Interned names are found faster.
+     */
+    public int index(String field) {
+        String[] a = slots;
+        int mask = a.length - 1, i = field.hashCode() & mask;
+        for (String s; (s = a[i]) != null; i = i + 1 & mask)
+            if (s == field || s.equals(field))
+                return slotIndex[i];
+        return -1;
+    }
+}
@@ -59,6 +59,6 @@ public final class Tag implements Comparable, Serializable {
     }
 
     public String toString() {
-        return name + ' ' + Core.show(value);
+        return Show.show(this);
     }
 }
@@ -0,0 +1,237 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - asynchronous task.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Yeti core library - asynchronous task.
+ *
+ * The task applies its function to () when run, and completes with
+ * the Ok result or Err exception variant. Executors for tasks use
+ * virtual threads, when the JDK supports them.
+ */
+public final class Task extends CompletableFuture implements Runnable {
+    private static ThreadFactory virtualFactory;
+    private static boolean virtualChecked;
+    private static ExecutorService sharedExecutor;
+    // full bounded executor runs the task in the submitter, until shutdown
+    private static final RejectedExecutionHandler CALLER_RUNS =
+        new RejectedExecutionHandler() {
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+                if (e.isShutdown())
+                    throw new RejectedExecutionException(
+                                "Task executor has been shut down");
+                r.run();
+            }
+        };
+    private Fun f;
+    private Thread runner;
+
+    public Task(Fun f) {
+        this.f = f;
+    }
+
+    public void run() {
+        Fun f;
+        synchronized (this) {
+            if ((f = this.f) == null)
+                return;
+            this.f = null;
+            runner = Thread.currentThread();
+        }
+        Tag r;
+        try {
+            r = new Tag(f.apply(null), "Ok");
+        } catch (Throwable ex) {
+            r = new Tag(ex, "Err");
+        }
+        synchronized (this) {
+            // don't leak the cancel interrupt into next task of the thread
+            if (runner == null)
+                Thread.interrupted();
+            runner = null;
+        }
+        complete(r);
+    }
+
+    public synchronized boolean cancel(boolean interrupt) {
+        f = null;
+        boolean cancelled = super.cancel(interrupt);
+        if (cancelled && interrupt && runner != null) {
+            runner.interrupt();
+            runner = null;
+        }
+        return cancelled;
+    }
+
+    private static Tag result(CompletableFuture future)
+            throws InterruptedException {
+        try {
+            return (Tag) future.get();
+        } catch (ExecutionException ex) {
+            return new Tag(ex.getCause(), "Err");
+        } catch (CancellationException ex) {
+            return new Tag(ex, "Err");
+        }
+    }
+
+    /** Waits for the task to complete and returns its result. */
+    public Tag await() throws InterruptedException {
+        return result(this);
+    }
+
+    /** Waits for all tasks to complete and returns list of results. */
+    public static AList awaitAll(AList tasks) throws InterruptedException {
+        MList res = new MList();
+        for (AIter i = tasks; i != null; i = i.next())
+            res.add(result((Task) i.first()));
+        return res.isEmpty() ? null : res;
+    }
+
+    /** Waits for any of the tasks to complete and returns its result. */
+    public static Tag race(AList tasks) throws InterruptedException {
+        List l = new ArrayList();
+        for (AIter i = tasks; i != null; i = i.next())
+            l.add(i.first());
+        if (l.isEmpty())
+            throw new IllegalArgumentException("race on empty task list");
+        return result(CompletableFuture.anyOf((CompletableFuture[])
+                        l.toArray(new CompletableFuture[l.size()])));
+    }
+
+    private static synchronized ThreadFactory virtualFactory() {
+        if (!virtualChecked) {
+            virtualChecked = true;
+            try {
+                Object builder =
+                    Thread.class.getMethod("ofVirtual").invoke(null);
+                Method factory = Class.forName("java.lang.Thread$Builder")
+                                      .getMethod("factory");
+                virtualFactory = (ThreadFactory) factory.invoke(builder);
+            } catch (Exception ex) {
+                // no virtual threads in this JDK
+            }
+        }
+        return virtualFactory;
+    }
+
+    /** Tells, whether the JDK supports virtual threads. */
+    public static boolean virtualThreads() {
+        return virtualFactory() != null;
+    }
+
+    /**
+     * Creates executor service for tasks.
+     *
+     * threads - maximum number of concurrently running tasks,
+     *           or 0 to run each task in a new (or idle) thread
+     * queue   - maximum number of tasks waiting for a thread before
+     *           the submitter runs the task itself, or 0 for unbounded
+     * virtual - use virtual threads, when available
+     * daemon  - platform threads won't keep the JVM running
+     */
+    public static ExecutorService executor(int threads, int queue,
+                                           boolean virtual,
+                                           final boolean daemon) {
+        ThreadFactory factory = virtual ? virtualFactory() : null;
+        if (factory == null) {
+            final ThreadFactory threadFactory =
+                Executors.defaultThreadFactory();
+            factory = new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread th = threadFactory.newThread(r);
+                    th.setDaemon(daemon);
+                    return th;
+                }
+            };
+        } else if (threads <= 0) {
+            // a new virtual thread for each task, as pooling them is useless
+            try {
+                return (ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        if (threads <= 0)
+            return Executors.newCachedThreadPool(factory);
+        BlockingQueue q = queue > 0 ? (BlockingQueue)
+            new ArrayBlockingQueue(queue) : new LinkedBlockingQueue();
+        ThreadPoolExecutor e =
+            new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, q,
+                        factory, CALLER_RUNS);
+        e.allowCoreThreadTimeOut(true);
+        return e;
+    }
+
+    /**
+     * The executor used by spawn - virtual threads when available,
+     * otherwise a cached pool of daemon threads.
+     */
+    public static synchronized ExecutorService sharedExecutor() {
+        if (sharedExecutor == null)
+            sharedExecutor = executor(0, 0, true, true);
+        return sharedExecutor;
+    }
+
+    /**
+     * Starts the task on the executor. The task completes with Err,
+     * when the executor rejects it (after shutdown).
+     */
+    public Task start(ExecutorService executor) {
+        try {
+            executor.execute(this);
+        } catch (RejectedExecutionException ex) {
+            synchronized (this) {
+                f = null;
+            }
+            complete(new Tag(ex, "Err"));
+        }
+        return this;
+    }
+}
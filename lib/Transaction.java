@@ -0,0 +1,163 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - software transactional memory.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// thrown on conflicting access, to restart the transaction
+final class RetryError extends Error {
+    public Throwable fillInStackTrace() {
+        return this;
+    }
+}
+
+/**
+ * Yeti core library - memory transaction.
+ *
+ * Optimistic transaction over TxRef references, using a global version
+ * clock (like TL2). The reads are validated against the version from
+ * the start of the transaction, so the transaction code never sees
+ * inconsistent state. Writes are buffered and published on commit,
+ * while holding locks of the written references.
+ */
+final class Transaction {
+    private static final AtomicLong clock = new AtomicLong();
+    private static final ThreadLocal current = new ThreadLocal();
+    private static final RetryError RETRY = new RetryError();
+    private final ArrayList reads = new ArrayList();
+    private final IdentityHashMap writes = new IdentityHashMap();
+    private long readVersion;
+
+    static Transaction current() {
+        return (Transaction) current.get();
+    }
+
+    Object read(TxRef ref) {
+        if (writes.containsKey(ref))
+            return writes.get(ref);
+        long version = ref.version;
+        Object value = ref.value;
+        if (ref.owner != null || ref.version != version ||
+                version > readVersion)
+            throw RETRY;
+        reads.add(ref);
+        return value;
+    }
+
+    void write(TxRef ref, Object value) {
+        writes.put(ref, value);
+    }
+
+    private void unlock(Iterator locked, TxRef upto) {
+        while (locked.hasNext()) {
+            TxRef ref = (TxRef) locked.next();
+            if (ref == upto)
+                return;
+            ref.owner = null;
+        }
+    }
+
+    private boolean commit() {
+        if (writes.isEmpty())
+            return true; // reads were validated already
+        Iterator i = writes.keySet().iterator();
+        while (i.hasNext()) {
+            TxRef ref = (TxRef) i.next();
+            if (!ref.lock(this)) {
+                unlock(writes.keySet().iterator(), ref);
+                return false;
+            }
+        }
+        long version = clock.incrementAndGet();
+        // no validation needed, when nobody else has committed meanwhile
+        if (version != readVersion + 1) {
+            for (int j = reads.size(); --j >= 0;) {
+                TxRef ref = (TxRef) reads.get(j);
+                Object owner = ref.owner;
+                if (owner != null && owner != this ||
+                        ref.version > readVersion) {
+                    unlock(writes.keySet().iterator(), null);
+                    return false;
+                }
+            }
+        }
+        for (i = writes.entrySet().iterator(); i.hasNext();) {
+            Map.Entry e = (Map.Entry) i.next();
+            TxRef ref = (TxRef) e.getKey();
+            ref.value = e.getValue();
+            ref.version = version;
+            ref.owner = null;
+        }
+        return true;
+    }
+
+    /**
+     * Applies the block to () in a transaction, restarting it until
+     * it can be committed without conflicts. Nested call joins the
+     * enclosing transaction.
+     */
+    static Object atomically(Fun block) {
+        if (current.get() != null)
+            return block.apply(null);
+        Transaction t = new Transaction();
+        current.set(t);
+        try {
+            for (int retries = 0;; ++retries) {
+                t.readVersion = clock.get();
+                try {
+                    Object result = block.apply(null);
+                    if (t.commit())
+                        return result;
+                } catch (RetryError ex) {
+                }
+                t.reads.clear();
+                t.writes.clear();
+                if (retries > 1)
+                    Thread.yield();
+            }
+        } finally {
+            current.remove();
+        }
+    }
+
+    // single write outside of transaction
+    static void write(TxRef ref, Object value, Object owner) {
+        while (!ref.lock(owner))
+            Thread.yield();
+        ref.value = value;
+        ref.version = clock.incrementAndGet();
+        ref.owner = null;
+    }
+}
@@ -0,0 +1,116 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - transactional reference.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+class TxUpdate extends Fun {
+    private final TxRef ref;
+
+    TxUpdate(TxRef ref_) {
+        ref = ref_;
+    }
+
+    public Object apply(final Object f) {
+        return Transaction.atomically(new Fun() {
+            public Object apply(Object __) {
+                Object value = ((Fun) f).apply(ref.get(1));
+                ref.set("value", value);
+                return value;
+            }
+        });
+    }
+}
+
+/**
+ * Yeti core library - transactional reference.
+ *
+ * The value field is read and written through the current transaction
+ * (see Transaction). Outside of transaction the committed value is read,
+ * and assignments are committed immediately.
+ */
+final class TxRef implements Struct {
+    private static final AtomicReferenceFieldUpdater OWNER =
+        AtomicReferenceFieldUpdater.newUpdater(TxRef.class, Object.class,
+                                               "owner");
+    volatile Object value;
+    volatile long version;
+    volatile Object owner; // the committing transaction
+
+    TxRef(Object value_) {
+        value = value_;
+    }
+
+    boolean lock(Object by) {
+        return OWNER.compareAndSet(this, null, by);
+    }
+
+    public Object get(String field) {
+        return get(field == "value" ? 1 : 0);
+    }
+
+    public Object get(int field) {
+        if (field == 0)
+            return new TxUpdate(this);
+        Transaction t = Transaction.current();
+        return t != null ? t.read(this) : value;
+    }
+
+    public void set(String field, Object value) {
+        Transaction t = Transaction.current();
+        if (t != null)
+            t.write(this, value);
+        else
+            Transaction.write(this, value, Thread.currentThread());
+    }
+
+    public int count() {
+        return 2;
+    }
+
+    public String name(int field) {
+        return field == 0 ? "update" : "value";
+    }
+
+    public String eqName(int field) {
+        return field == 0 ? "" : "value";
+    }
+
+    public Object ref(int field, int[] index, int at) {
+        index[at + 1] = 0;
+        if (field == 1) { // value
+            index[at] = field;
+            return this;
+        }
+        index[at] = -1;
+        return get(field);
+    }
+}
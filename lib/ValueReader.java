@@ -0,0 +1,274 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - compact binary value reader.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads Yeti values written by {@link ValueWriter}.
+ *
+ * Lists and arrays are read as arrays, hash maps as plain hashes
+ * and structures as {@link GenericStruct} instances with the original
+ * field names and mutability.
+ */
+public class ValueReader {
+    // counts come from the stream, so larger arrays grow as data arrives
+    private static final int PREALLOC = 4096;
+    private final InputStream in;
+    private final byte[] buf = new byte[8192];
+    private int pos;
+    private int end;
+    private boolean started;
+    private final List names = new ArrayList();
+    private final List shapes = new ArrayList();
+
+    public ValueReader(InputStream in) {
+        this.in = in;
+    }
+
+    /** Decodes single value from byte array. */
+    public static Object decode(byte[] data) {
+        try {
+            return new ValueReader(
+                new java.io.ByteArrayInputStream(data)).read();
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(ex.getMessage());
+        }
+    }
+
+    private boolean fill() throws IOException {
+        if (pos < end)
+            return true;
+        int n = in.read(buf, 0, buf.length);
+        pos = 0;
+        end = n < 0 ? 0 : n;
+        return n > 0;
+    }
+
+    private int readByte() throws IOException {
+        if (pos >= end && !fill())
+            throw new EOFException("Unexpected end of value stream");
+        return buf[pos++] & 0xff;
+    }
+
+    private byte[] readBytes(int len) throws IOException {
+        byte[] to = new byte[len < PREALLOC ? len : PREALLOC];
+        for (int off = 0; off < len;) {
+            if (off == to.length)
+                to = Arrays.copyOf(to, (int) Math.min(len, off * 2L));
+            if (pos >= end && !fill())
+                throw new EOFException("Unexpected end of value stream");
+            int n = Math.min(end - pos, to.length - off);
+            System.arraycopy(buf, pos, to, off, n);
+            pos += n;
+            off += n;
+        }
+        return to;
+    }
+
+    private long readVarLong() throws IOException {
+        long v = 0;
+        int b, shift = 0;
+        do {
+            if (shift > 63)
+                throw new StreamCorruptedException("Invalid varint");
+            v |= (long) ((b = readByte()) & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return v;
+    }
+
+    private long readZigZag() throws IOException {
+        long v = readVarLong();
+        return v >>> 1 ^ -(v & 1);
+    }
+
+    private int readCount() throws IOException {
+        long n = readVarLong();
+        if (n > Integer.MAX_VALUE)
+            throw new StreamCorruptedException("Invalid length " + n);
+        return (int) n;
+    }
+
+    private String readString() throws IOException {
+        return new String(readBytes(readCount()), "UTF-8");
+    }
+
+    private String readName() throws IOException {
+        int id = readCount();
+        if (id == 0) {
+            String name = readString().intern();
+            names.add(name);
+            return name;
+        }
+        if (id > names.size())
+            throw new StreamCorruptedException("Invalid name reference");
+        return (String) names.get(id - 1);
+    }
+
+    private StructShape readShape() throws IOException {
+        int id = readCount();
+        if (id != 0) {
+            if (id > shapes.size())
+                throw new StreamCorruptedException("Invalid struct reference");
+            return (StructShape) shapes.get(id - 1);
+        }
+        int cnt = readCount();
+        String[] fields = new String[cnt < PREALLOC ? cnt : PREALLOC];
+        boolean[] vars = new boolean[fields.length];
+        boolean mutable = false;
+        for (int i = 0; i < cnt; ++i) {
+            if (i == fields.length) {
+                int n = (int) Math.min(cnt, i * 2L);
+                fields = Arrays.copyOf(fields, n);
+                vars = Arrays.copyOf(vars, n);
+            }
+            mutable |= vars[i] = readByte() != 0;
+            fields[i] = readName();
+        }
+        StructShape shape = StructShape.get(fields, mutable ? vars : null);
+        shapes.add(shape);
+        return shape;
+    }
+
+    /**
+     * Returns true, if the stream has been fully consumed.
+     * May block waiting for input.
+     */
+    public boolean atEnd() throws IOException {
+        return !fill();
+    }
+
+    /**
+     * Reads next value from the stream.
+     * Throws java.io.EOFException at the end of stream.
+     */
+    public Object read() throws IOException {
+        if (!started) {
+            if (readByte() != 'Y' || readByte() != 'V')
+                throw new StreamCorruptedException("Not a Yeti value stream");
+            int version = readByte();
+            if (version != ValueWriter.VERSION)
+                throw new StreamCorruptedException(
+                    "Unsupported value stream version " + version);
+            started = true;
+        }
+        return readValue(readByte());
+    }
+
+    private Object readValue(int tag) throws IOException {
+        if (tag >= ValueWriter.SMALL_INT)
+            return new IntNum(tag & 0x7f);
+        int cnt;
+        switch (tag) {
+        case ValueWriter.NULL:
+            return null;
+        case ValueWriter.FALSE:
+            return Boolean.FALSE;
+        case ValueWriter.TRUE:
+            return Boolean.TRUE;
+        case ValueWriter.INT:
+            return new IntNum(readZigZag());
+        case ValueWriter.BIG:
+            return new BigNum(new BigInteger(readBytes(readCount())));
+        case ValueWriter.DEC: {
+            int scale = readCount();
+            return DecNum.valueOf(new BigDecimal(
+                        new BigInteger(readBytes(readCount())), scale));
+        }
+        case ValueWriter.RAT: {
+            long numerator = readZigZag(), denominator = readVarLong();
+            if (denominator <= 0)
+                throw new StreamCorruptedException("Invalid denominator");
+            return new RatNum(numerator, denominator);
+        }
+        case ValueWriter.FLOAT: {
+            long v = 0;
+            for (int i = 0; i < 8; ++i)
+                v = v << 8 | readByte();
+            return new FloatNum(Double.longBitsToDouble(v));
+        }
+        case ValueWriter.STR:
+            return readString();
+        case ValueWriter.UNDEF_STR:
+            return Core.UNDEF_STR;
+        case ValueWriter.LIST: {
+            MList l = new MList();
+            while ((tag = readByte()) != ValueWriter.END)
+                l.add(readValue(tag));
+            return l.isEmpty() ? null : l;
+        }
+        case ValueWriter.ARRAY: {
+            MList a = new MList();
+            a.reserve((cnt = readCount()) < PREALLOC ? cnt : PREALLOC);
+            for (int i = 0; i < cnt; ++i)
+                a.add(readValue(readByte()));
+            return a;
+        }
+        case ValueWriter.BYTES:
+            return PArray.wrap(readBytes(readCount()));
+        case ValueWriter.HASH: {
+            cnt = readCount();
+            Hash h = new Hash((cnt < PREALLOC ? cnt : PREALLOC) * 4 / 3 + 1);
+            for (int i = 0; i < cnt; ++i) {
+                Object k = readValue(readByte());
+                h.put(k, readValue(readByte()));
+            }
+            return h;
+        }
+        case ValueWriter.STRUCT: {
+            StructShape shape = readShape();
+            GenericStruct st = new GenericStruct(shape);
+            for (int i = 0, n = shape.count(); i < n; ++i)
+                st.values[i] = readValue(readByte());
+            return st;
+        }
+        case ValueWriter.TAG: {
+            String name = readName();
+            return new Tag(readValue(readByte()), name);
+        }
+        }
+        throw new StreamCorruptedException("Invalid value tag " + tag);
+    }
+
+    /** Closes the underlying stream. */
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,306 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - compact binary value writer.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Writes Yeti values in compact binary format readable by
+ * {@link ValueReader}.
+ *
+ * Struct field names and variant tags are written only once per stream,
+ * later occurrences refer to them by number. Numbers are written as
+ * variable-length integers where possible. The stream can contain any
+ * number of values, and the name tables are shared between them.
+ *
+ * Supported values are numbers, strings, booleans, unit/empty lists,
+ * lists, arrays, hash maps, structures and variants. Functions and
+ * other Java objects cause IllegalArgumentException. Lists must be finite.
+ * Property fields of structures are written by their current value.
+ */
+public class ValueWriter {
+    static final int NULL = 0;
+    static final int FALSE = 1;
+    static final int TRUE = 2;
+    static final int INT = 3;
+    static final int BIG = 4;
+    static final int RAT = 5;
+    static final int FLOAT = 6;
+    static final int STR = 7;
+    static final int UNDEF_STR = 8;
+    static final int LIST = 9;
+    static final int END = 10;
+    static final int ARRAY = 11;
+    static final int BYTES = 12;
+    static final int HASH = 13;
+    static final int STRUCT = 14;
+    static final int TAG = 15;
+    static final int DEC = 16;
+    // 0x80 | n encodes small integer n (0 <= n < 128) in single byte
+    static final int SMALL_INT = 0x80;
+    static final int VERSION = 1;
+
+    private final OutputStream out;
+    private final byte[] buf = new byte[8192];
+    private int pos;
+    private boolean started;
+    private final Map names = new HashMap();
+    private final Map shapes = new HashMap();
+    // interned structure shapes already written
+    private final Map shapeCache = new IdentityHashMap();
+    private final int[] refIndex = new int[2];
+
+    public ValueWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /** Encodes single value into byte array. */
+    public static byte[] encode(Object value) {
+        java.io.ByteArrayOutputStream buf =
+            new java.io.ByteArrayOutputStream();
+        ValueWriter w = new ValueWriter(buf);
+        try {
+            w.write(value);
+            w.flush();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        return buf.toByteArray();
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (pos >= buf.length)
+            drain();
+        buf[pos++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] b, int off, int len) throws IOException {
+        if (len > buf.length - pos) {
+            drain();
+            if (len > buf.length) {
+                out.write(b, off, len);
+                return;
+            }
+        }
+        System.arraycopy(b, off, buf, pos, len);
+        pos += len;
+    }
+
+    private void drain() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+
+    private void writeVarLong(long v) throws IOException {
+        if (buf.length - pos < 10)
+            drain();
+        while ((v & ~0x7fL) != 0) {
+            buf[pos++] = (byte) (v & 0x7f | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+    }
+
+    private void writeString(String s) throws IOException {
+        byte[] b = s.getBytes("UTF-8");
+        writeVarLong(b.length);
+        writeBytes(b, 0, b.length);
+    }
+
+    // known names are written as id + 1, new as 0 followed by the name
+    private void writeName(String name) throws IOException {
+        Integer id = (Integer) names.get(name);
+        if (id != null) {
+            writeVarLong(id.intValue() + 1);
+        } else {
+            names.put(name, Integer.valueOf(names.size()));
+            writeByte(0);
+            writeString(name);
+        }
+    }
+
+    private void writeShape(Struct st, int cnt) throws IOException {
+        StructShape shape = null;
+        if (st instanceof AStruct && (shape = ((AStruct) st).shape) != null) {
+            Integer id = (Integer) shapeCache.get(shape);
+            if (id != null) {
+                writeVarLong(id.intValue() + 1);
+                return;
+            }
+        }
+        boolean[] mutable = new boolean[cnt];
+        StringBuilder sig = new StringBuilder();
+        for (int i = 0; i < cnt; ++i) {
+            st.ref(i, refIndex, 0);
+            mutable[i] = refIndex[0] >= 0;
+            sig.append(mutable[i] ? ';' : ',').append(st.name(i));
+        }
+        String sigKey = sig.toString();
+        Integer id = (Integer) shapes.get(sigKey);
+        if (id != null) {
+            writeVarLong(id.intValue() + 1);
+        } else {
+            id = Integer.valueOf(shapes.size());
+            shapes.put(sigKey, id);
+            writeByte(0);
+            writeVarLong(cnt);
+            for (int i = 0; i < cnt; ++i) {
+                writeByte(mutable[i] ? 1 : 0);
+                writeName(st.name(i));
+            }
+        }
+        if (shape != null)
+            shapeCache.put(shape, id);
+    }
+
+    /** Writes the value into the stream. */
+    public void write(Object value) throws IOException {
+        if (!started) {
+            writeByte('Y');
+            writeByte('V');
+            writeByte(VERSION);
+            started = true;
+        }
+        writeValue(value);
+    }
+
+    private void writeValue(Object o) throws IOException {
+        if (o == null) {
+            writeByte(NULL);
+        } else if (o instanceof String) {
+            if (o == Core.UNDEF_STR) {
+                writeByte(UNDEF_STR);
+            } else {
+                writeByte(STR);
+                writeString((String) o);
+            }
+        } else if (o instanceof IntNum) {
+            long v = ((IntNum) o).longValue();
+            if (v >= 0 && v < 0x80) {
+                writeByte(SMALL_INT | (int) v);
+            } else {
+                writeByte(INT);
+                writeVarLong(v << 1 ^ v >> 63);
+            }
+        } else if (o instanceof FloatNum) {
+            long v = Double.doubleToRawLongBits(((FloatNum) o).doubleValue());
+            writeByte(FLOAT);
+            for (int i = 56; i >= 0; i -= 8)
+                writeByte((int) (v >>> i));
+        } else if (o instanceof RatNum) {
+            RatNum r = (RatNum) o;
+            long v = r.numerator; // numerator() truncates to int
+            writeByte(RAT);
+            writeVarLong(v << 1 ^ v >> 63);
+            writeVarLong(r.denominator);
+        } else if (o instanceof BigNum) {
+            byte[] b = ((BigNum) o).toBigInteger().toByteArray();
+            writeByte(BIG);
+            writeVarLong(b.length);
+            writeBytes(b, 0, b.length);
+        } else if (o instanceof DecNum) {
+            BigDecimal d = ((DecNum) o).toBigDecimal();
+            byte[] b = d.unscaledValue().toByteArray();
+            writeByte(DEC);
+            writeVarLong(d.scale());
+            writeVarLong(b.length);
+            writeBytes(b, 0, b.length);
+        } else if (o instanceof Boolean) {
+            writeByte(((Boolean) o).booleanValue() ? TRUE : FALSE);
+        } else if (o instanceof Tag) {
+            Tag t = (Tag) o;
+            writeByte(TAG);
+            writeName(t.name);
+            writeValue(t.value);
+        } else if (o instanceof Struct) {
+            Struct st = (Struct) o;
+            int cnt = st.count();
+            writeByte(STRUCT);
+            writeShape(st, cnt);
+            for (int i = 0; i < cnt; ++i)
+                writeValue(st.get(i));
+        } else if (o instanceof AMList) {
+            AMList a = (AMList) o;
+            Object[] array = a.array();
+            int i = a.start, cnt = a._size();
+            writeByte(ARRAY);
+            writeVarLong(cnt > i ? cnt - i : 0);
+            for (; i < cnt; ++i)
+                writeValue(array[i]);
+        } else if (o instanceof ByteArray) {
+            ByteArray a = (ByteArray) o;
+            writeByte(BYTES);
+            writeVarLong(a.length - a.start);
+            writeBytes((byte[]) a.array, a.start, a.length - a.start);
+        } else if (o instanceof AList) {
+            writeByte(LIST);
+            for (AIter i = (AList) o; i != null; i = i.next())
+                writeValue(i.first());
+            writeByte(END);
+        } else if (o instanceof Map) {
+            Map m = (Map) o;
+            writeByte(HASH);
+            writeVarLong(m.size());
+            for (Iterator i = m.entrySet().iterator(); i.hasNext();) {
+                Map.Entry e = (Map.Entry) i.next();
+                writeValue(e.getKey());
+                writeValue(e.getValue());
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot serialize value of "
+                                               + o.getClass());
+        }
+    }
+
+    /** Flushes buffered data into the underlying stream. */
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /** Flushes and closes the underlying stream. */
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            out.close();
+        }
+    }
+}
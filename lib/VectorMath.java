@@ -0,0 +1,77 @@
+// ex: se sts=4 sw=4 expandtab:
+
+/*
+ * Yeti core library - SIMD numeric kernels.
+ *
+ * Copyright (c) 2026 Madis Janson
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package yeti.lang;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Yeti core library - SIMD numeric kernels.
+ *
+ * ArrayMath kernels using the jdk.incubator.vector API. Compiled
+ * separately for Java 17, and loaded by ArrayMath only when the module
+ * is available, so the library itself doesn't depend on it.
+ */
+final class VectorMath extends ArrayMath.Kernels {
+    private static final VectorSpecies<Double> S =
+        DoubleVector.SPECIES_PREFERRED;
+
+    double dot(double[] x, int xi, double[] y, int yi, int n) {
+        DoubleVector acc = DoubleVector.zero(S);
+        int i = 0;
+        for (int e = S.loopBound(n); i < e; i += S.length())
+            acc = acc.add(DoubleVector.fromArray(S, x, xi + i)
+                            .mul(DoubleVector.fromArray(S, y, yi + i)));
+        double s = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; ++i)
+            s += x[xi + i] * y[yi + i];
+        return s;
+    }
+
+    // separate mul and add round same as the scalar a * x[i] + y[i]
+    void axpy(double a, double[] x, double[] y, double[] r) {
+        int i = 0;
+        for (int e = S.loopBound(r.length); i < e; i += S.length())
+            DoubleVector.fromArray(S, x, i).mul(a)
+                .add(DoubleVector.fromArray(S, y, i)).intoArray(r, i);
+        for (; i < r.length; ++i)
+            r[i] = a * x[i] + y[i];
+    }
+
+    void scale(double a, double[] x, double[] r) {
+        int i = 0;
+        for (int e = S.loopBound(r.length); i < e; i += S.length())
+            DoubleVector.fromArray(S, x, i).mul(a).intoArray(r, i);
+        for (; i < r.length; ++i)
+            r[i] = a * x[i];
+    }
+}
@@ -84,6 +84,9 @@ syn keyword yetiFunction threadExit runnable concurrentHash weakHash customHash
 syn keyword yetiFunction atomic round mapIntoHash base64Encode base64Decode
 syn keyword yetiFunction fetchURL print println eprintln readln stdin sleep
 syn keyword yetiFunction strOfInt hex parseProperties
+syn keyword yetiFunction counterHash addCount computeIfAbsent mergeHash
+syn keyword yetiFunction updateHash parallelForHash reduceHash cacheHash
+syn keyword yetiFunction cacheStats memoize
 syn keyword yetiExternal load deprecated
 syn keyword yetiExternal import skipwhite skipempty nextgroup=yetiImport
 syn match yetiFunction "\<contains?\>"
@@ -3,14 +3,115 @@
 #include <string.h>
 #include <sys/types.h>
 #include <sys/stat.h>
+#include <sys/socket.h>
+#include <netinet/in.h>
+#include <arpa/inet.h>
 #include <termios.h>
 #include <unistd.h>
 
+static int send_all(int fd, const char *s, size_t len) {
+	ssize_t n;
+	while (len > 0) {
+		if ((n = write(fd, s, len)) <= 0)
+			return -1;
+		s += n;
+		len -= n;
+	}
+	return 0;
+}
+
+static int read_all(int fd, unsigned char *buf, size_t len) {
+	ssize_t n;
+	while (len > 0) {
+		if ((n = read(fd, buf, len)) <= 0)
+			return -1;
+		buf += n;
+		len -= n;
+	}
+	return 0;
+}
+
+/*
+ * Sends the request to compile server started with yeti -server in the
+ * current directory. Returns -1 when there is no usable server.
+ */
+static int use_server(int argc, char **argv) {
+	struct sockaddr_in addr;
+	unsigned char hdr[5], buf[8192];
+	char token[64], count[16];
+	unsigned int len, port;
+	ssize_t n;
+	int fd, i;
+	FILE *f;
+
+	if (argc < 2 || !strcmp(argv[1], "-server") ||
+	    (getenv("YETI_SERVER") && !strcmp(getenv("YETI_SERVER"), "0")))
+		return -1;
+	if (!(f = fopen(".yeti-server", "r")))
+		return -1;
+	i = fscanf(f, "%u %63s", &port, token);
+	fclose(f);
+	if (i != 2 || (fd = socket(AF_INET, SOCK_STREAM, 0)) < 0)
+		return -1;
+	memset(&addr, 0, sizeof addr);
+	addr.sin_family = AF_INET;
+	addr.sin_port = htons(port);
+	addr.sin_addr.s_addr = htonl(INADDR_LOOPBACK);
+	if (connect(fd, (struct sockaddr*) &addr, sizeof addr)) {
+		close(fd);
+		return -1;
+	}
+	sprintf(count, "%d", argc - 1);
+	if (send_all(fd, token, strlen(token) + 1) ||
+	    send_all(fd, count, strlen(count) + 1))
+		goto lost;
+	for (i = 1; i < argc; ++i)
+		if (send_all(fd, argv[i], strlen(argv[i]) + 1))
+			goto lost;
+	for (;;) {
+		if (read_all(fd, hdr, 5))
+			goto lost;
+		len = (unsigned) hdr[1] << 24 | hdr[2] << 16 | hdr[3] << 8 | hdr[4];
+		if (!hdr[0]) {
+			close(fd);
+			return (int) len & 0xff;
+		}
+		if (hdr[0] == 3) { /* server reads stdin */
+			n = read(0, buf + 4, len > sizeof buf - 4
+			                     ? sizeof buf - 4 : len);
+			if (n < 0)
+				n = 0;
+			buf[0] = n >> 24;
+			buf[1] = n >> 16;
+			buf[2] = n >> 8;
+			buf[3] = n;
+			if (send_all(fd, (char*) buf, n + 4))
+				goto lost;
+			continue;
+		}
+		while (len > 0) {
+			i = len > sizeof buf ? sizeof buf : len;
+			if (read_all(fd, buf, i))
+				goto lost;
+			fwrite(buf, 1, i, hdr[0] == 1 ? stdout : stderr);
+			len -= i;
+		}
+		fflush(hdr[0] == 1 ? stdout : stderr);
+	}
+lost:
+	fputs("yeti: lost connection to the compile server\n", stderr);
+	close(fd);
+	return 3;
+}
+
 int main(int argc, char** argv) {
 	struct termios term;
 	struct stat statbuf;
 	char *java, *java_home, *jar, **args;
 	int n = 0;
+	if ((n = use_server(argc, argv)) >= 0)
+		return n;
+	n = 0;
 	jar = getenv("YETI_JAR");
 	java_home = getenv("JAVA_HOME");
 	if (!jar)